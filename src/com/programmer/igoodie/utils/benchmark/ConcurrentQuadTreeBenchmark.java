@@ -0,0 +1,171 @@
+package com.programmer.igoodie.utils.benchmark;
+
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import com.programmer.igoodie.utils.log.ConsolePrinter;
+import com.programmer.igoodie.utils.math.Vectorf;
+import com.programmer.igoodie.utils.structures.Entity;
+import com.programmer.igoodie.utils.structures.shapes.Rectangle;
+import com.programmer.igoodie.utils.structures.spatial.ConcurrentQuadTree;
+import com.programmer.igoodie.utils.structures.spatial.QuadTree;
+
+/**
+ * Stress test and throughput benchmark of {@link ConcurrentQuadTree}.
+ * <br/>
+ * One writer thread keeps moving random entities while reader threads run radius
+ * queries. Every reader also checks that a snapshot always holds exactly the inserted
+ * entity count, so a torn or half-published write fails the run. Same workload is then
+ * run on a {@link QuadTree} guarded by a global read/write lock for comparison, its
+ * readers query concurrently under the shared read lock.
+ * <br/>
+ * Usage: ConcurrentQuadTreeBenchmark [entityCount] [readerThreads] [seconds]
+ */
+public final class ConcurrentQuadTreeBenchmark {
+
+	private static final float SIZE = 10_000f;
+	private static final float RADIUS = 100f;
+
+	public static void main(String[] args) throws InterruptedException {
+		final int entityCount = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+		final int readers = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+		final int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+
+		ConsolePrinter.info("%d entities, %d readers, %d seconds each", entityCount, readers, seconds);
+		runConcurrent(createEntities(entityCount), readers, seconds);
+		runLocked(createEntities(entityCount), readers, seconds);
+	}
+
+	private static ArrayList<Entity> createEntities(int count) {
+		Random random = new Random(1L);
+		ArrayList<Entity> entities = new ArrayList<>(count);
+		for(int i=0; i<count; i++) {
+			entities.add(new Entity(1 + random.nextFloat() * (SIZE-2), 1 + random.nextFloat() * (SIZE-2)));
+		}
+		return entities;
+	}
+
+	private static void runConcurrent(final ArrayList<Entity> entities, int readers, int seconds) throws InterruptedException {
+		final ConcurrentQuadTree<Entity> tree = new ConcurrentQuadTree<>(0, 0, SIZE, SIZE);
+		tree.insertAll(entities);
+		final int expected = tree.snapshot().size();
+		final AtomicLong failures = new AtomicLong();
+
+		Result result = run(readers, seconds, random -> {
+			Entity entity = entities.get(random.nextInt(entities.size()));
+			Vectorf old = entity.position.copy();
+			entity.position.set(move(old.x, random), move(old.y, random));
+			tree.update(entity, old);
+		}, random -> {
+			ConcurrentQuadTree.Snapshot<Entity> snapshot = tree.snapshot();
+			if(random.nextInt(1000) == 0 && snapshot.countWithin(new Rectangle(-1, -1, SIZE+2, SIZE+2)) != expected) {
+				failures.incrementAndGet();
+			}
+			snapshot.countWithin(random.nextFloat() * SIZE, random.nextFloat() * SIZE, RADIUS);
+		});
+
+		ConsolePrinter.info("ConcurrentQuadTree: %s, %d inconsistent snapshots, final version %d",
+				result, failures.get(), tree.version());
+		if(failures.get() != 0) {
+			ConsolePrinter.error("Readers observed an inconsistent snapshot!");
+		}
+	}
+
+	private static void runLocked(final ArrayList<Entity> entities, int readers, int seconds) throws InterruptedException {
+		final QuadTree<Entity> tree = new QuadTree<>(0, 0, SIZE, SIZE);
+		tree.insertAll(entities);
+		final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+		Result result = run(readers, seconds, random -> {
+			Entity entity = entities.get(random.nextInt(entities.size()));
+			Vectorf old = entity.position.copy();
+			lock.writeLock().lock();
+			try {
+				entity.position.set(move(old.x, random), move(old.y, random));
+				tree.update(entity, old);
+			}
+			finally {
+				lock.writeLock().unlock();
+			}
+		}, random -> {
+			float x = random.nextFloat() * SIZE, y = random.nextFloat() * SIZE;
+			// Readers may share the read lock, QuadTree queries keep their traversal state per thread
+			lock.readLock().lock();
+			try {
+				tree.countWithin(x, y, RADIUS);
+			}
+			finally {
+				lock.readLock().unlock();
+			}
+		});
+
+		ConsolePrinter.info("QuadTree + global lock: %s", result);
+	}
+
+	private static float move(float value, Random random) {
+		float moved = value + random.nextFloat() * 20 - 10;
+		return moved <= 1 || moved >= SIZE-1 ? value : moved;
+	}
+
+	private interface Operation {
+		void run(Random random);
+	}
+
+	private static final class Result {
+		long writes, reads;
+		int seconds;
+
+		@Override
+		public String toString() {
+			return String.format("%.0f writes/s, %.0f reads/s", writes / (double) seconds, reads / (double) seconds);
+		}
+	}
+
+	private static Result run(int readers, int seconds, final Operation write, final Operation read) throws InterruptedException {
+		final AtomicBoolean running = new AtomicBoolean(true);
+		final AtomicLong writes = new AtomicLong(), reads = new AtomicLong();
+
+		Thread writer = new Thread(() -> {
+			Random random = new Random(2L);
+			long count = 0;
+			while(running.get()) {
+				write.run(random);
+				count++;
+			}
+			writes.addAndGet(count);
+		});
+
+		Thread[] readerThreads = new Thread[readers];
+		for(int i=0; i<readers; i++) {
+			final long seed = 3L + i;
+			readerThreads[i] = new Thread(() -> {
+				Random random = new Random(seed);
+				long count = 0;
+				while(running.get()) {
+					read.run(random);
+					count++;
+				}
+				reads.addAndGet(count);
+			});
+		}
+
+		writer.start();
+		for(Thread reader : readerThreads) reader.start();
+
+		Thread.sleep(seconds * 1000L);
+		running.set(false);
+
+		writer.join();
+		for(Thread reader : readerThreads) reader.join();
+
+		Result result = new Result();
+		result.writes = writes.get();
+		result.reads = reads.get();
+		result.seconds = seconds;
+		return result;
+	}
+
+}
@@ -0,0 +1,91 @@
+package com.programmer.igoodie.utils.benchmark;
+
+import java.util.Random;
+
+import com.programmer.igoodie.utils.log.ConsolePrinter;
+import com.programmer.igoodie.utils.math.FastMath;
+import com.programmer.igoodie.utils.math.MathUtils;
+
+/**
+ * Measures the maximum error of {@link FastMath} against {@link Math} over a dense sweep,
+ * then the throughput of both over random arguments.
+ * <br/>
+ * Usage: FastMathBenchmark [callCount]
+ */
+public final class FastMathBenchmark {
+
+	private static final float ANGLE_RANGE = 1000f;
+
+	public static void main(String[] args) {
+		int count = args.length > 0 ? Integer.parseInt(args[0]) : 10_000_000;
+
+		accuracy();
+
+		Random random = new Random(1L);
+		float[] xs = new float[count], ys = new float[count];
+		for(int i=0; i<count; i++) {
+			xs[i] = (random.nextFloat() * 2 - 1) * ANGLE_RANGE;
+			ys[i] = (random.nextFloat() * 2 - 1) * ANGLE_RANGE;
+		}
+		float[] positives = new float[count];
+		for(int i=0; i<count; i++) positives[i] = Math.abs(xs[i]) + Float.MIN_NORMAL;
+
+		for(int round=0; round<3; round++) {
+			ConsolePrinter.info("== Round %d ==", round + 1);
+			final float[] sink = new float[1];
+			final float[] sincos = new float[2];
+
+			compare("sin", count,
+					() -> { for(int i=0; i<count; i++) sink[0] += MathUtils.sin(xs[i]); },
+					() -> { for(int i=0; i<count; i++) sink[0] += FastMath.sin(xs[i]); });
+			compare("sin+cos", count,
+					() -> { for(int i=0; i<count; i++) sink[0] += MathUtils.sin(xs[i]) + MathUtils.cos(xs[i]); },
+					() -> { for(int i=0; i<count; i++) { FastMath.sincos(xs[i], sincos); sink[0] += sincos[0] + sincos[1]; } });
+			compare("atan2", count,
+					() -> { for(int i=0; i<count; i++) sink[0] += MathUtils.atan2(ys[i], xs[i]); },
+					() -> { for(int i=0; i<count; i++) sink[0] += FastMath.atan2(ys[i], xs[i]); });
+			compare("invSqrt", count,
+					() -> { for(int i=0; i<count; i++) sink[0] += 1f / MathUtils.sqrt(positives[i]); },
+					() -> { for(int i=0; i<count; i++) sink[0] += FastMath.invSqrt(positives[i]); });
+
+			ConsolePrinter.info("(sink %f)", sink[0]);
+		}
+	}
+
+	private static void compare(String name, int count, Runnable exact, Runnable fast) {
+		long exactNS = Performance.testTimeNS(exact);
+		long fastNS = Performance.testTimeNS(fast);
+		ConsolePrinter.info("%-8s Math %6.2f ns/op  FastMath %6.2f ns/op  x%.2f",
+				name, exactNS / (double) count, fastNS / (double) count, exactNS / (double) fastNS);
+	}
+
+	private static void accuracy() {
+		double sinError = 0, cosError = 0, sincosError = 0;
+		float[] sincos = new float[2];
+		for(float x=-ANGLE_RANGE; x<=ANGLE_RANGE; x+=1e-3f) {
+			sinError = Math.max(sinError, Math.abs(FastMath.sin(x) - Math.sin(x)));
+			cosError = Math.max(cosError, Math.abs(FastMath.cos(x) - Math.cos(x)));
+			FastMath.sincos(x, sincos);
+			sincosError = Math.max(sincosError, Math.max(Math.abs(sincos[0] - Math.sin(x)), Math.abs(sincos[1] - Math.cos(x))));
+		}
+
+		double atan2Error = 0;
+		for(int i=0; i<2_000_000; i++) {
+			double angle = i * (2 * Math.PI / 2_000_000);
+			float x = (float) Math.cos(angle), y = (float) Math.sin(angle);
+			for(float scale : new float[] { 1e-3f, 1f, 1e4f }) {
+				atan2Error = Math.max(atan2Error, Math.abs(FastMath.atan2(y * scale, x * scale) - Math.atan2(y * scale, x * scale)));
+			}
+		}
+
+		double invSqrtError = 0;
+		for(float x=1e-6f; x<1e6f; x*=1.0001f) {
+			double exact = 1 / Math.sqrt(x);
+			invSqrtError = Math.max(invSqrtError, Math.abs(FastMath.invSqrt(x) - exact) / exact);
+		}
+
+		ConsolePrinter.info("Max errors: sin %.2e, cos %.2e, sincos %.2e, atan2 %.2e rad, invSqrt %.2e relative",
+				sinError, cosError, sincosError, atan2Error, invSqrtError);
+	}
+
+}
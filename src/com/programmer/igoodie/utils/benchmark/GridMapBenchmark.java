@@ -0,0 +1,96 @@
+package com.programmer.igoodie.utils.benchmark;
+
+import java.util.ArrayList;
+
+import com.programmer.igoodie.utils.log.ConsolePrinter;
+import com.programmer.igoodie.utils.math.Randomizer;
+import com.programmer.igoodie.utils.structures.Entity;
+import com.programmer.igoodie.utils.structures.shapes.Rectangle;
+import com.programmer.igoodie.utils.structures.spatial.GridMap;
+import com.programmer.igoodie.utils.structures.spatial.QuadTree;
+
+/**
+ * Compares {@link GridMap} against {@link QuadTree} on a workload where
+ * every entity moves every tick and then each entity runs a radius query.
+ * QuadTree has to be rebuilt each tick, GridMap moves entities in place.
+ * <br/>
+ * Usage: GridMapBenchmark [entityCount] [ticks] [queryRadius]
+ */
+public final class GridMapBenchmark {
+
+	private static final float SIZE = 10_000f;
+	private static final float SPEED = 5f;
+
+	public static void main(String[] args) {
+		final int entityCount = args.length > 0 ? Integer.parseInt(args[0]) : 50_000;
+		final int ticks = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+		final float radius = args.length > 2 ? Float.parseFloat(args[2]) : 50f;
+
+		Randomizer.randomSeed(1L);
+		// Each index gets its own copy of the entities, GridMap must see every move
+		final ArrayList<Entity> treeEntities = new ArrayList<>(entityCount);
+		final ArrayList<Entity> gridEntities = new ArrayList<>(entityCount);
+		final float[] treeVelocities = new float[entityCount * 2];
+		for(int i=0; i<entityCount; i++) {
+			float x = Randomizer.randomFloat(1, SIZE-1);
+			float y = Randomizer.randomFloat(1, SIZE-1);
+			treeEntities.add(new Entity(x, y));
+			gridEntities.add(new Entity(x, y));
+			treeVelocities[2*i] = Randomizer.randomFloat(-SPEED, SPEED);
+			treeVelocities[2*i+1] = Randomizer.randomFloat(-SPEED, SPEED);
+		}
+		final float[] gridVelocities = treeVelocities.clone();
+
+		final GridMap<Entity> grid = new GridMap<>(new Rectangle(0, 0, SIZE, SIZE), 200, 200);
+		grid.insertAll(gridEntities);
+		final long[] hits = new long[2];
+
+		Runnable quadTreeTick = () -> {
+			QuadTree<Entity> tree = new QuadTree<>(0, 0, SIZE, SIZE);
+			for(int i=0; i<entityCount; i++) {
+				Entity e = treeEntities.get(i);
+				float[] next = step(e, treeVelocities, i);
+				e.position.set(next[0], next[1]);
+			}
+			tree.insertAll(treeEntities);
+			for(Entity e : treeEntities) hits[0] += tree.query(e, radius).size();
+		};
+
+		Runnable gridMapTick = () -> {
+			for(int i=0; i<entityCount; i++) {
+				Entity e = gridEntities.get(i);
+				float[] next = step(e, gridVelocities, i);
+				grid.move(e, next[0], next[1]);
+			}
+			for(Entity e : gridEntities) hits[1] += grid.query(e, radius).size();
+		};
+
+		// Warm up both paths before timing
+		Performance.testTimeNS(quadTreeTick, 3);
+		Performance.testTimeNS(gridMapTick, 3);
+		hits[0] = hits[1] = 0;
+
+		long quadTreeNS = Performance.testTimeNSAvg(quadTreeTick, ticks);
+		long gridMapNS = Performance.testTimeNSAvg(gridMapTick, ticks);
+
+		ConsolePrinter.info("%d entities, %d ticks, radius %.1f", entityCount, ticks, radius);
+		ConsolePrinter.info("QuadTree (rebuild + query): %.3f ms/tick, %d hits", quadTreeNS / 1e6, hits[0]);
+		ConsolePrinter.info("GridMap (move + query): %.3f ms/tick, %d hits", gridMapNS / 1e6, hits[1]);
+	}
+
+	private static final float[] NEXT = new float[2];
+
+	private static float[] step(Entity e, float[] velocities, int i) {
+		float x = e.position.x + velocities[2*i];
+		float y = e.position.y + velocities[2*i+1];
+
+		// Bounce off the walls
+		if(x <= 0 || x >= SIZE) { velocities[2*i] = -velocities[2*i]; x = e.position.x; }
+		if(y <= 0 || y >= SIZE) { velocities[2*i+1] = -velocities[2*i+1]; y = e.position.y; }
+
+		NEXT[0] = x;
+		NEXT[1] = y;
+		return NEXT;
+	}
+
+}
@@ -0,0 +1,51 @@
+package com.programmer.igoodie.utils.benchmark;
+
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+
+import com.programmer.igoodie.utils.log.ConsolePrinter;
+import com.programmer.igoodie.utils.math.Randomizer;
+import com.programmer.igoodie.utils.structures.Entity;
+import com.programmer.igoodie.utils.structures.spatial.QuadTree;
+
+/**
+ * Compares building a {@link QuadTree} with {@link QuadTree#insertAll(ArrayList)}
+ * against {@link QuadTree#bulkLoad(float, float, float, float, java.util.List, ForkJoinPool)}
+ * with pools of 1, 2, 4 .. available processors threads.
+ * <br/>
+ * Usage: QuadTreeBulkLoadBenchmark [entityCount] [trials]
+ */
+public final class QuadTreeBulkLoadBenchmark {
+
+	private static final float SIZE = 10_000f;
+
+	public static void main(String[] args) {
+		final int entityCount = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+		final int trials = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+		Randomizer.randomSeed(1L);
+		final ArrayList<Entity> entities = new ArrayList<>(entityCount);
+		for(int i=0; i<entityCount; i++) {
+			entities.add(new Entity(Randomizer.randomFloat(0, SIZE), Randomizer.randomFloat(0, SIZE)));
+		}
+
+		Runnable insertAll = () -> new QuadTree<Entity>(0, 0, SIZE, SIZE).insertAll(entities);
+		Performance.testTimeNS(insertAll, 2);
+		long insertNS = Performance.testTimeNSAvg(insertAll, trials);
+
+		ConsolePrinter.info("%d entities, %d trials", entityCount, trials);
+		ConsolePrinter.info("insertAll: %.3f ms", insertNS / 1e6);
+
+		int processors = Runtime.getRuntime().availableProcessors();
+		for(int threads=1; threads<=processors; threads*=2) {
+			final ForkJoinPool pool = new ForkJoinPool(threads);
+			Runnable bulkLoad = () -> QuadTree.bulkLoad(0, 0, SIZE, SIZE, entities, pool);
+
+			Performance.testTimeNS(bulkLoad, 2);
+			long bulkNS = Performance.testTimeNSAvg(bulkLoad, trials);
+			ConsolePrinter.info("bulkLoad, %d threads: %.3f ms (%.2fx insertAll)", threads, bulkNS / 1e6, insertNS / (double) bulkNS);
+			pool.shutdown();
+		}
+	}
+
+}
@@ -0,0 +1,78 @@
+package com.programmer.igoodie.utils.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+
+import com.programmer.igoodie.utils.log.ConsolePrinter;
+import com.programmer.igoodie.utils.math.Randomizer;
+
+/**
+ * Multithreaded randomFloat() throughput of a shared {@link Random} (the former Randomizer
+ * backend), {@link Randomizer} and {@link ThreadLocalRandom}, for 1, 2, 4, ... threads
+ * up to the given count.
+ * <br/>
+ * Usage: RandomizerBenchmark [maxThreads] [drawsPerThread]
+ */
+public final class RandomizerBenchmark {
+
+	private interface FloatSource {
+		float next();
+	}
+
+	public static void main(String[] args) throws InterruptedException {
+		int maxThreads = args.length > 0 ? Integer.parseInt(args[0]) : Math.max(4, Runtime.getRuntime().availableProcessors());
+		int draws = args.length > 1 ? Integer.parseInt(args[1]) : 20_000_000;
+
+		ConsolePrinter.info("%d cores, %d draws per thread", Runtime.getRuntime().availableProcessors(), draws);
+
+		Random shared = new Random(1L);
+		Randomizer.randomSeed(1L);
+
+		for(int round=0; round<2; round++) {
+			ConsolePrinter.info("== Round %d ==", round + 1);
+			for(int threads=1; threads<=maxThreads; threads*=2) {
+				ConsolePrinter.info("%2d threads  shared Random %8.1f M/s  Randomizer %8.1f M/s  ThreadLocalRandom %8.1f M/s",
+						threads,
+						run(threads, draws, shared::nextFloat),
+						run(threads, draws, Randomizer::randomFloat),
+						run(threads, draws, () -> ThreadLocalRandom.current().nextFloat()));
+			}
+		}
+	}
+
+	/**
+	 * @return Million draws per second over all threads
+	 */
+	private static double run(int threads, int draws, FloatSource source) throws InterruptedException {
+		CountDownLatch start = new CountDownLatch(1);
+		CountDownLatch done = new CountDownLatch(threads);
+		float[] sinks = new float[threads * 16];
+
+		for(int t=0; t<threads; t++) {
+			int slot = t * 16; // Keep sinks on separate cache lines
+			new Thread(() -> {
+				try {
+					start.await();
+				} catch(InterruptedException e) {
+					return;
+				}
+				float sum = 0;
+				for(int i=0; i<draws; i++) sum += source.next();
+				sinks[slot] = sum;
+				done.countDown();
+			}).start();
+		}
+
+		long ns = Performance.testTimeNS(() -> {
+			start.countDown();
+			try {
+				done.await();
+			} catch(InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		});
+		return threads * (double) draws / (ns / 1e3);
+	}
+
+}
@@ -0,0 +1,227 @@
+package com.programmer.igoodie.utils.benchmark;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+
+import com.programmer.igoodie.utils.log.ConsolePrinter;
+import com.programmer.igoodie.utils.math.Vectorf;
+import com.programmer.igoodie.utils.structures.Entity;
+import com.programmer.igoodie.utils.structures.shapes.Circle;
+import com.programmer.igoodie.utils.structures.shapes.Rectangle;
+import com.programmer.igoodie.utils.structures.spatial.GridMap;
+import com.programmer.igoodie.utils.structures.spatial.QuadTree;
+
+/**
+ * Runs insert, rebuild, query and update throughput of {@link QuadTree}, {@link GridMap}
+ * and a brute force scan on every {@link SpatialWorkload.Distribution}.
+ * Query hit counts are printed as well, QuadTree and GridMap must report the same count.
+ * Brute force only runs the head of the query mix, so its count is lower.
+ * QuadTree radius queries are expected not to allocate, bytes they allocate are printed too.
+ * <br/>
+ * Usage: SpatialBenchmark [entityCount] [queryCount] [ticks] [seed]
+ */
+public final class SpatialBenchmark {
+
+	private static final float SIZE = 10_000f;
+	private static final float QUERY_EXTENT = 200f;
+	private static final float SPEED = 5f;
+	private static final int GRID_TILES = 200;
+
+	public static void main(String[] args) {
+		int entityCount = args.length > 0 ? Integer.parseInt(args[0]) : 50_000;
+		int queryCount = args.length > 1 ? Integer.parseInt(args[1]) : 20_000;
+		int ticks = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+		long seed = args.length > 3 ? Long.parseLong(args[3]) : 1L;
+
+		ConsolePrinter.info("%d entities, %d queries, %d ticks, seed %d", entityCount, queryCount, ticks, seed);
+
+		for(SpatialWorkload.Distribution distribution : SpatialWorkload.Distribution.values()) {
+			SpatialWorkload workload = SpatialWorkload.generate(distribution, entityCount, SIZE, seed);
+			SpatialWorkload.Query[] queries = workload.queries(queryCount, QUERY_EXTENT, seed + 1);
+			float[][] trace = workload.trace(ticks, SPEED, seed + 2);
+
+			ConsolePrinter.info("== %s ==", distribution);
+			run(new QuadTreeIndex(), workload, queries, trace);
+			radiusAllocation(workload, queries);
+			run(new GridMapIndex(), workload, queries, trace);
+
+			// Brute force queries are O(N) each, keep it to a fraction of the mix
+			int bruteQueries = Math.min(queries.length, 1000);
+			SpatialWorkload.Query[] fewer = new SpatialWorkload.Query[bruteQueries];
+			System.arraycopy(queries, 0, fewer, 0, bruteQueries);
+			run(new BruteForceIndex(), workload, fewer, trace);
+		}
+	}
+
+	private static void run(final Index index, SpatialWorkload workload,
+			final SpatialWorkload.Query[] queries, final float[][] trace) {
+		final ArrayList<Entity> entities = workload.entities();
+		final long[] hits = new long[1];
+
+		// Warm up, then time against fresh entities
+		index.build(entities);
+		for(SpatialWorkload.Query query : queries) index.query(query);
+
+		long insertNS = Performance.testTimeNSAvg(() -> index.build(entities), 3);
+		long rebuildNS = Performance.testTimeNSAvg(() -> index.rebuild(entities), 3);
+		long queryNS = Performance.testTimeNS(() -> {
+			for(SpatialWorkload.Query query : queries) hits[0] += index.query(query);
+		});
+
+		final Vectorf old = new Vectorf();
+		long updateNS = Performance.testTimeNS(() -> {
+			for(float[] positions : trace) {
+				for(int i=0, size=entities.size(); i<size; i++) {
+					Entity entity = entities.get(i);
+					old.set(entity.position.x, entity.position.y);
+					index.move(entity, old, positions[2*i], positions[2*i+1]);
+				}
+			}
+		});
+
+		int n = entities.size();
+		ConsolePrinter.info("%-10s insert %8.0f/ms  rebuild %8.0f/ms  query %8.1f/ms  update %8.0f/ms  hits %d",
+				index.name(),
+				n / (insertNS / 1e6),
+				n / (rebuildNS / 1e6),
+				queries.length / (queryNS / 1e6),
+				n * (double) trace.length / (updateNS / 1e6),
+				hits[0]);
+	}
+
+	/**
+	 * Prints bytes allocated per QuadTree radius query on this thread, after a warm up so
+	 * the JIT had a chance to compile the query path.
+	 */
+	private static void radiusAllocation(SpatialWorkload workload, SpatialWorkload.Query[] queries) {
+		java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if(!(bean instanceof com.sun.management.ThreadMXBean)) return;
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+		long thread = Thread.currentThread().getId();
+
+		QuadTree<Entity> tree = new QuadTree<>(0, 0, SIZE, SIZE);
+		tree.insertAll(workload.entities());
+
+		long hits = 0, before = 0;
+		int radiusQueries = 0;
+		for(int pass=0; pass<2; pass++) {
+			before = threads.getThreadAllocatedBytes(thread);
+			radiusQueries = 0;
+			for(SpatialWorkload.Query query : queries) {
+				if(query.type != SpatialWorkload.QueryType.CIRCLE) continue;
+				hits += tree.countWithin(query.x, query.y, query.w);
+				hits += tree.anyWithin(query.x, query.y, query.w) ? 1 : 0;
+				radiusQueries += 2;
+			}
+		}
+		long allocated = threads.getThreadAllocatedBytes(thread) - before;
+
+		ConsolePrinter.info("%-10s radius queries allocate %.2f bytes/query (%d queries, hits %d)",
+				"QuadTree", allocated / (double) Math.max(1, radiusQueries), radiusQueries, hits);
+	}
+
+	private interface Index {
+		String name();
+		void build(ArrayList<Entity> entities);
+		void rebuild(ArrayList<Entity> entities);
+		int query(SpatialWorkload.Query query);
+		void move(Entity entity, Vectorf oldPosition, float x, float y);
+	}
+
+	private static final class QuadTreeIndex implements Index {
+		QuadTree<Entity> tree;
+
+		public String name() { return "QuadTree"; }
+
+		public void build(ArrayList<Entity> entities) {
+			tree = new QuadTree<>(0, 0, SIZE, SIZE);
+			tree.insertAll(entities);
+		}
+
+		public void rebuild(ArrayList<Entity> entities) {
+			tree.reset();
+			tree.insertAll(entities);
+		}
+
+		public int query(SpatialWorkload.Query query) {
+			if(query.type == SpatialWorkload.QueryType.RECT) {
+				return tree.countWithin(new Rectangle(query.x, query.y, query.w, query.h));
+			}
+			return tree.countWithin(query.x, query.y, query.w);
+		}
+
+		public void move(Entity entity, Vectorf oldPosition, float x, float y) {
+			entity.position.set(x, y);
+			tree.update(entity, oldPosition);
+		}
+	}
+
+	private static final class GridMapIndex implements Index {
+		GridMap<Entity> grid;
+		final ArrayList<Entity> scratch = new ArrayList<>();
+
+		public String name() { return "GridMap"; }
+
+		public void build(ArrayList<Entity> entities) {
+			grid = new GridMap<>(new Rectangle(0, 0, SIZE, SIZE), GRID_TILES, GRID_TILES);
+			grid.insertAll(entities);
+		}
+
+		public void rebuild(ArrayList<Entity> entities) {
+			grid.reset();
+			grid.insertAll(entities);
+		}
+
+		public int query(SpatialWorkload.Query query) {
+			scratch.clear();
+			if(query.type == SpatialWorkload.QueryType.RECT) {
+				grid.query(new Rectangle(query.x, query.y, query.w, query.h), scratch);
+			}
+			else {
+				grid.query(new Circle(query.x, query.y, query.w), scratch);
+			}
+			return scratch.size();
+		}
+
+		public void move(Entity entity, Vectorf oldPosition, float x, float y) {
+			grid.move(entity, x, y);
+		}
+	}
+
+	private static final class BruteForceIndex implements Index {
+		ArrayList<Entity> entities;
+
+		public String name() { return "BruteForce"; }
+
+		public void build(ArrayList<Entity> entities) {
+			this.entities = new ArrayList<>(entities);
+		}
+
+		public void rebuild(ArrayList<Entity> entities) {
+			this.entities.clear();
+			this.entities.addAll(entities);
+		}
+
+		public int query(SpatialWorkload.Query query) {
+			int count = 0;
+			if(query.type == SpatialWorkload.QueryType.RECT) {
+				Rectangle range = new Rectangle(query.x, query.y, query.w, query.h);
+				for(int i=0, size=entities.size(); i<size; i++) {
+					if(range.containsPoint(entities.get(i))) count++;
+				}
+			}
+			else {
+				Circle range = new Circle(query.x, query.y, query.w);
+				for(int i=0, size=entities.size(); i<size; i++) {
+					if(range.containsPoint(entities.get(i))) count++;
+				}
+			}
+			return count;
+		}
+
+		public void move(Entity entity, Vectorf oldPosition, float x, float y) {
+			entity.position.set(x, y);
+		}
+	}
+
+}
@@ -0,0 +1,180 @@
+package com.programmer.igoodie.utils.benchmark;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import com.programmer.igoodie.utils.structures.Entity;
+
+/**
+ * Reproducible point sets, movement traces and query mixes for spatial index benchmarks.
+ * Every generator takes a seed, so the same workload can be replayed against
+ * different indices or different versions of an index.
+ * <br/>
+ * All points are kept strictly inside (0, size) on both axes, so indices with
+ * inclusive and exclusive boundaries accept the same points.
+ */
+public final class SpatialWorkload {
+
+	public enum Distribution {
+		UNIFORM,
+		CLUSTERED, // Gaussian clusters, like towns and spawn camps
+		COINCIDENT // Many entities on a handful of exact positions, like stacked spawns
+	}
+
+	public enum QueryType {
+		RECT, CIRCLE
+	}
+
+	public static final class Query {
+		public final QueryType type;
+		public final float x, y;
+		public final float w, h; // Width and height for rect, w is the radius for circle
+
+		Query(QueryType type, float x, float y, float w, float h) {
+			this.type = type;
+			this.x = x;
+			this.y = y;
+			this.w = w;
+			this.h = h;
+		}
+	}
+
+	private static final int CLUSTERS = 32;
+	private static final int COINCIDENT_SPOTS = 8;
+
+	public final Distribution distribution;
+	public final float size;
+	public final float[] xs, ys;
+
+	private SpatialWorkload(Distribution distribution, float size, float[] xs, float[] ys) {
+		this.distribution = distribution;
+		this.size = size;
+		this.xs = xs;
+		this.ys = ys;
+	}
+
+	public static SpatialWorkload generate(Distribution distribution, int count, float size, long seed) {
+		Random random = new Random(seed);
+		float[] xs = new float[count], ys = new float[count];
+
+		switch(distribution) {
+		case UNIFORM:
+			for(int i=0; i<count; i++) {
+				xs[i] = clamp(random.nextFloat() * size, size);
+				ys[i] = clamp(random.nextFloat() * size, size);
+			}
+			break;
+
+		case CLUSTERED:
+			float[] centers = spots(random, CLUSTERS * 2, size);
+			float sigma = size / 100f;
+			for(int i=0; i<count; i++) {
+				int c = random.nextInt(CLUSTERS);
+				xs[i] = clamp(centers[2*c] + (float) random.nextGaussian() * sigma, size);
+				ys[i] = clamp(centers[2*c+1] + (float) random.nextGaussian() * sigma, size);
+			}
+			break;
+
+		case COINCIDENT:
+			float[] spots = spots(random, COINCIDENT_SPOTS * 2, size);
+			for(int i=0; i<count; i++) {
+				int s = random.nextInt(COINCIDENT_SPOTS);
+				xs[i] = spots[2*s];
+				ys[i] = spots[2*s+1];
+			}
+			break;
+		}
+
+		return new SpatialWorkload(distribution, size, xs, ys);
+	}
+
+	private static float[] spots(Random random, int length, float size) {
+		float[] spots = new float[length];
+		for(int i=0; i<length; i++) spots[i] = clamp(random.nextFloat() * size, size);
+		return spots;
+	}
+
+	private static float clamp(float value, float size) {
+		float min = size * 1e-4f, max = size - min;
+		return value < min ? min : value > max ? max : value;
+	}
+
+	public int size() {
+		return xs.length;
+	}
+
+	/**
+	 * @return Fresh entities at the workload points, indices match the points
+	 */
+	public ArrayList<Entity> entities() {
+		ArrayList<Entity> entities = new ArrayList<>(xs.length);
+		for(int i=0; i<xs.length; i++) {
+			entities.add(new Entity(xs[i], ys[i]));
+		}
+		return entities;
+	}
+
+	/**
+	 * Generates positions of every point for the given number of ticks. Points walk
+	 * with a constant random velocity and bounce off the borders.
+	 * @return Interleaved (x, y) positions, indexed by [tick][2 * point + axis]
+	 */
+	public float[][] trace(int ticks, float speed, long seed) {
+		Random random = new Random(seed);
+		int count = xs.length;
+		float[] velocities = new float[count * 2];
+		for(int i=0; i<velocities.length; i++) {
+			velocities[i] = (random.nextFloat() * 2 - 1) * speed;
+		}
+
+		float[][] trace = new float[ticks][count * 2];
+		float[] previous = new float[count * 2];
+		for(int i=0; i<count; i++) {
+			previous[2*i] = xs[i];
+			previous[2*i+1] = ys[i];
+		}
+
+		for(int tick=0; tick<ticks; tick++) {
+			float[] positions = trace[tick];
+			for(int i=0; i<count * 2; i++) {
+				float next = previous[i] + velocities[i];
+				if(next != clamp(next, size)) {
+					velocities[i] = -velocities[i];
+					next = previous[i];
+				}
+				positions[i] = next;
+			}
+			previous = positions;
+		}
+
+		return trace;
+	}
+
+	/**
+	 * Generates an even mix of rect and circle queries. Query centers are picked
+	 * from the workload points, so queries follow the distribution like real ones do.
+	 * @param extent Largest rect side, or twice the largest radius
+	 */
+	public Query[] queries(int count, float extent, long seed) {
+		Random random = new Random(seed);
+		QueryType[] types = QueryType.values();
+		Query[] queries = new Query[count];
+
+		for(int i=0; i<count; i++) {
+			int p = random.nextInt(xs.length);
+			QueryType type = types[i % types.length];
+			float a = (0.25f + random.nextFloat() * 0.75f) * extent;
+			float b = (0.25f + random.nextFloat() * 0.75f) * extent;
+
+			if(type == QueryType.RECT) {
+				queries[i] = new Query(type, xs[p] - a / 2, ys[p] - b / 2, a, b);
+			}
+			else {
+				queries[i] = new Query(type, xs[p], ys[p], a / 2, 0);
+			}
+		}
+
+		return queries;
+	}
+
+}
@@ -0,0 +1,98 @@
+package com.programmer.igoodie.utils.benchmark;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import com.programmer.igoodie.utils.log.ConsolePrinter;
+import com.programmer.igoodie.utils.math.Vectorf;
+import com.programmer.igoodie.utils.math.VectorfArray;
+
+/**
+ * Particle integration and normalization over {@link Vectorf} objects versus {@link VectorfArray},
+ * sequential and parallel. Checksums of all three must match.
+ * <br/>
+ * Usage: VectorfArrayBenchmark [particleCount] [steps]
+ */
+public final class VectorfArrayBenchmark {
+
+	private static final float DT = 1 / 60f;
+	private static final float MAX_SPEED = 4f;
+
+	public static void main(String[] args) {
+		int count = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+		int steps = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+
+		ConsolePrinter.info("%d particles, %d steps, %d cores", count, steps, Runtime.getRuntime().availableProcessors());
+
+		for(int round=0; round<3; round++) {
+			ConsolePrinter.info("== Round %d ==", round + 1);
+
+			final ArrayList<Vectorf> positions = new ArrayList<>(), velocities = new ArrayList<>(), accelerations = new ArrayList<>();
+			fill(positions, count, 1L);
+			fill(velocities, count, 2L);
+			fill(accelerations, count, 3L);
+
+			long objectNS = Performance.testTimeNS(() -> {
+				for(int s=0; s<steps; s++) {
+					for(int i=0; i<count; i++) {
+						// Static Vectorf.mult drops z, scaled inline instead
+						Vectorf velocity = velocities.get(i), acceleration = accelerations.get(i);
+						velocity.add(acceleration.x * DT, acceleration.y * DT, acceleration.z * DT).limit(MAX_SPEED);
+						positions.get(i).add(velocity.x * DT, velocity.y * DT, velocity.z * DT);
+					}
+				}
+			});
+			report("Vectorf", count, steps, objectNS, checksum(VectorfArray.from(positions)));
+
+			run("VectorfArray", positions, velocities, accelerations, steps, false);
+			run("Parallel", positions, velocities, accelerations, steps, true);
+		}
+	}
+
+	private static void run(String name, ArrayList<Vectorf> p, ArrayList<Vectorf> v, ArrayList<Vectorf> a, int steps, boolean parallel) {
+		int count = p.size();
+		VectorfArray positions = new VectorfArray(count), velocities = new VectorfArray(count), accelerations = new VectorfArray(count);
+		fill(positions, 1L);
+		fill(velocities, 2L);
+		fill(accelerations, 3L);
+
+		long ns = Performance.testTimeNS(() -> {
+			for(int s=0; s<steps; s++) {
+				if(parallel) {
+					velocities.addScaledParallel(accelerations, DT).limitParallel(MAX_SPEED);
+					positions.addScaledParallel(velocities, DT);
+				}
+				else {
+					velocities.addScaled(accelerations, DT).limit(MAX_SPEED);
+					positions.addScaled(velocities, DT);
+				}
+			}
+		});
+		report(name, count, steps, ns, checksum(positions));
+	}
+
+	private static void report(String name, int count, int steps, long ns, double checksum) {
+		ConsolePrinter.info("%-12s %8.1f M vectors/s  checksum %.3f", name, count * (double) steps / (ns / 1e3), checksum);
+	}
+
+	private static void fill(ArrayList<Vectorf> list, int count, long seed) {
+		Random random = new Random(seed);
+		for(int i=0; i<count; i++) {
+			list.add(new Vectorf(random.nextFloat() - .5f, random.nextFloat() - .5f, random.nextFloat() - .5f));
+		}
+	}
+
+	private static void fill(VectorfArray array, long seed) {
+		Random random = new Random(seed);
+		for(int i=0; i<array.size; i++) {
+			array.set(i, random.nextFloat() - .5f, random.nextFloat() - .5f, random.nextFloat() - .5f);
+		}
+	}
+
+	private static double checksum(VectorfArray array) {
+		double sum = 0;
+		for(int i=0; i<array.size; i++) sum += array.xs[i] + array.ys[i] + array.zs[i];
+		return sum;
+	}
+
+}
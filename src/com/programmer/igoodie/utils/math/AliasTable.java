@@ -0,0 +1,96 @@
+package com.programmer.igoodie.utils.math;
+
+/**
+ * Weighted choice of an index in O(1) per draw, after an O(n) setup (Vose's alias method).
+ * <br/>
+ * Every index owns a column of equal width. Column <b>i</b> keeps <b>probability[i]</b>
+ * of its own weight and hands the rest to <b>alias[i]</b>, so a draw is one uniform column
+ * and one biased coin.
+ */
+public class AliasTable {
+
+	private final double[] probability;
+	private final int[] alias;
+
+	/**
+	 * @param weights Non-negative, finite weights, with a positive sum. Index i is drawn
+	 * with probability weights[i] / sum.
+	 */
+	public AliasTable(double[] weights) {
+		int n = weights.length;
+		if(n == 0) throw new IllegalArgumentException("Weights cannot be empty");
+
+		double sum = 0;
+		for(double weight : weights) {
+			if(!(weight >= 0) || Double.isInfinite(weight)) {
+				throw new IllegalArgumentException("Weights must be non-negative and finite: " + weight);
+			}
+			sum += weight;
+		}
+		if(!(sum > 0) || Double.isInfinite(sum)) {
+			throw new IllegalArgumentException("Weights must have a positive, finite sum: " + sum);
+		}
+
+		this.probability = new double[n];
+		this.alias = new int[n];
+
+		// Scaled so the average column is 1, split into under and over full columns
+		double[] scaled = new double[n];
+		int[] small = new int[n], large = new int[n];
+		int smallCount = 0, largeCount = 0;
+		for(int i=0; i<n; i++) {
+			scaled[i] = weights[i] * n / sum;
+			if(scaled[i] < 1) small[smallCount++] = i;
+			else large[largeCount++] = i;
+		}
+
+		while(smallCount > 0 && largeCount > 0) {
+			int less = small[--smallCount], more = large[--largeCount];
+			probability[less] = scaled[less];
+			alias[less] = more;
+
+			scaled[more] = (scaled[more] + scaled[less]) - 1;
+			if(scaled[more] < 1) small[smallCount++] = more;
+			else large[largeCount++] = more;
+		}
+
+		// Leftovers are full up to rounding errors
+		while(largeCount > 0) {
+			int i = large[--largeCount];
+			probability[i] = 1;
+			alias[i] = i;
+		}
+		while(smallCount > 0) {
+			int i = small[--smallCount];
+			probability[i] = 1;
+			alias[i] = i;
+		}
+	}
+
+	public AliasTable(float[] weights) {
+		this(toDoubles(weights));
+	}
+
+	private static double[] toDoubles(float[] weights) {
+		double[] doubles = new double[weights.length];
+		for(int i=0; i<weights.length; i++) doubles[i] = weights[i];
+		return doubles;
+	}
+
+	public int size() {
+		return probability.length;
+	}
+
+	/**
+	 * @return Random index using the calling thread's generator of {@link Randomizer}
+	 */
+	public int sample() {
+		return sample(Randomizer.current());
+	}
+
+	public int sample(FastRandom random) {
+		int column = random.nextInt(probability.length);
+		return random.nextDouble() < probability[column] ? column : alias[column];
+	}
+
+}
@@ -0,0 +1,140 @@
+package com.programmer.igoodie.utils.math;
+
+/**
+ * Approximate float versions of the trigonometric and square root wrappers of {@link MathUtils}.
+ * They trade accuracy for speed, maximum errors below are measured against {@link Math}
+ * by {@link com.programmer.igoodie.utils.benchmark.FastMathBenchmark}.
+ * Use {@link MathUtils} where exact results matter.
+ */
+public final class FastMath {
+
+	private static final float TWO_OVER_PI = (float) (2 / Math.PI);
+	private static final double HALF_PI = Math.PI / 2;
+
+	// Adding 1.5 * 2^23 rounds a float to an integer held in the low mantissa bits
+	private static final float ROUND_MAGIC = 12582912f;
+	private static final int ROUND_MAGIC_BITS = 0x4B400000;
+
+	private static final float ATAN_A = 0.99997726f;
+	private static final float ATAN_B = -0.33262347f;
+	private static final float ATAN_C = 0.19354346f;
+	private static final float ATAN_D = -0.11643287f;
+	private static final float ATAN_E = 0.05265332f;
+	private static final float ATAN_F = -0.01172120f;
+
+	private FastMath() {}
+
+	/* Sin & Cos */
+	/**
+	 * Polynomial sine. Maximum absolute error is 1.1e-7 (measured for |x| up to 1000).
+	 * Range reduction stays valid for |x| below 2^22.
+	 */
+	public static float sin(float x) {
+		int quadrant = quadrant(x);
+		float r = reduce(x, quadrant);
+		float s = (quadrant & 1) == 0 ? sinPoly(r) : cosPoly(r);
+		return (quadrant & 2) == 0 ? s : -s;
+	}
+
+	/**
+	 * Polynomial cosine, same error as {@link #sin(float)}.
+	 */
+	public static float cos(float x) {
+		int quadrant = quadrant(x);
+		float r = reduce(x, quadrant);
+		float c = (quadrant & 1) == 0 ? cosPoly(r) : sinPoly(r);
+		return ((quadrant + 1) & 2) == 0 ? c : -c;
+	}
+
+	/**
+	 * Sine and cosine with a single range reduction.
+	 * @param target Array of at least 2, receives {sin, cos}
+	 * @return Target array
+	 */
+	public static float[] sincos(float x, float[] target) {
+		int quadrant = quadrant(x);
+		float r = reduce(x, quadrant);
+		float s = sinPoly(r), c = cosPoly(r);
+
+		if((quadrant & 1) != 0) {
+			float temp = s;
+			s = c;
+			c = -temp;
+		}
+		if((quadrant & 2) != 0) {
+			s = -s;
+			c = -c;
+		}
+
+		target[0] = s;
+		target[1] = c;
+		return target;
+	}
+
+	/**
+	 * @return Nearest multiple of pi/2 to x, as an integer (only low 2 bits are used)
+	 */
+	private static int quadrant(float x) {
+		return Float.floatToRawIntBits(x * TWO_OVER_PI + ROUND_MAGIC) - ROUND_MAGIC_BITS;
+	}
+
+	/**
+	 * @return x - quadrant * pi/2 in [-pi/4, pi/4], subtracted in double to keep float precision
+	 */
+	private static float reduce(float x, int quadrant) {
+		return (float) (x - quadrant * HALF_PI);
+	}
+
+	// Taylor polynomials, their truncation error is below float precision on [-pi/4, pi/4]
+	private static float sinPoly(float r) {
+		float r2 = r * r;
+		return r + r * r2 * (-1f/6 + r2 * (1f/120 + r2 * (-1f/5040 + r2 * (1f/362880))));
+	}
+
+	private static float cosPoly(float r) {
+		float r2 = r * r;
+		return 1 + r2 * (-1f/2 + r2 * (1f/24 + r2 * (-1f/720 + r2 * (1f/40320))));
+	}
+
+	/* Atan2 */
+	/**
+	 * Polynomial atan2, maximum absolute error is 2e-6 radians.
+	 * Returns 0 for (0, 0) like {@link Math#atan2(double, double)}.
+	 */
+	public static float atan2(float y, float x) {
+		float ax = Math.abs(x), ay = Math.abs(y);
+		float max = Math.max(ax, ay);
+		if(max == 0) return 0;
+
+		// Odd polynomial of atan on [0, 1]
+		float a = Math.min(ax, ay) / max;
+		float s = a * a;
+		float r = a * (ATAN_A + s * (ATAN_B + s * (ATAN_C + s * (ATAN_D + s * (ATAN_E + s * ATAN_F)))));
+
+		if(ay > ax) r = MathUtils.PI / 2 - r;
+		if(x < 0) r = MathUtils.PI - r;
+
+		// Sign bit rather than y < 0, so -0 gives -pi like Math#atan2
+		return Float.floatToRawIntBits(y) < 0 ? -r : r;
+	}
+
+	/* Sqrt */
+	/**
+	 * Bit level estimate of 1 / sqrt(x), refined by two Newton steps.
+	 * Maximum relative error is 5e-6. Only meaningful for positive, finite x.
+	 */
+	public static float invSqrt(float x) {
+		float half = 0.5f * x;
+		float y = Float.intBitsToFloat(0x5F375A86 - (Float.floatToRawIntBits(x) >> 1));
+		y = y * (1.5f - half * y * y);
+		return y * (1.5f - half * y * y);
+	}
+
+	/**
+	 * x * {@link #invSqrt(float)}, same relative error. Returns 0 for 0.
+	 */
+	public static float sqrt(float x) {
+		return x == 0 ? 0 : x * invSqrt(x);
+	}
+
+}
@@ -0,0 +1,207 @@
+package com.programmer.igoodie.utils.math;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * xoshiro256** generator, seeded through SplitMix64.
+ * <br/>
+ * Unlike {@link java.util.Random} it has no atomic state, so an instance must not be
+ * shared between threads: give each thread or task its own, e.g. with {@link #split()}
+ * or {@link #forStream(long, long)}. Both are deterministic, so a simulation seeded
+ * from one root seed reproduces regardless of how its work is scheduled.
+ */
+public class FastRandom {
+
+	private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+	private static final AtomicLong SEED_UNIQUIFIER = new AtomicLong(System.nanoTime());
+
+	private static final long[] JUMP = {
+			0x180EC6D33CFD0ABAL, 0xD5A61266F0C9392CL, 0xA9582618E03FC9AAL, 0x39ABDC4529B1661CL
+	};
+
+	/**
+	 * SplitMix64 finalizer, a bijective mix of all the bits of <b>z</b>
+	 */
+	static long mix64(long z) {
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+	/**
+	 * Generator number <b>stream</b> derived from <b>rootSeed</b>. Same arguments
+	 * always give the same sequence, different streams give unrelated sequences.
+	 */
+	public static FastRandom forStream(long rootSeed, long stream) {
+		return new FastRandom(rootSeed ^ mix64(stream + GOLDEN_GAMMA));
+	}
+
+	/* Fields */
+	private long s0, s1, s2, s3;
+
+	/* Constructors */
+	public FastRandom() {
+		this(mix64(SEED_UNIQUIFIER.addAndGet(GOLDEN_GAMMA)) ^ System.nanoTime());
+	}
+
+	public FastRandom(long seed) {
+		setSeed(seed);
+	}
+
+	private FastRandom(long s0, long s1, long s2, long s3) {
+		this.s0 = s0;
+		this.s1 = s1;
+		this.s2 = s2;
+		this.s3 = s3;
+	}
+
+	/**
+	 * Fills the state with 4 consecutive SplitMix64 outputs of <b>seed</b>,
+	 * which can never be all zero.
+	 */
+	public void setSeed(long seed) {
+		s0 = mix64(seed += GOLDEN_GAMMA);
+		s1 = mix64(seed += GOLDEN_GAMMA);
+		s2 = mix64(seed += GOLDEN_GAMMA);
+		s3 = mix64(seed + GOLDEN_GAMMA);
+	}
+
+	/* Splitting */
+	/**
+	 * @return New generator seeded from the next output of this one
+	 */
+	public FastRandom split() {
+		return new FastRandom(nextLong());
+	}
+
+	/**
+	 * Advances this generator by 2^128 steps. Calling it between copies gives up to 2^128
+	 * non overlapping sequences of 2^128 values each.
+	 */
+	public FastRandom jump() {
+		long t0 = 0, t1 = 0, t2 = 0, t3 = 0;
+		for(long jump : JUMP) {
+			for(int bit=0; bit<64; bit++) {
+				if((jump & (1L << bit)) != 0) {
+					t0 ^= s0;
+					t1 ^= s1;
+					t2 ^= s2;
+					t3 ^= s3;
+				}
+				nextLong();
+			}
+		}
+		s0 = t0;
+		s1 = t1;
+		s2 = t2;
+		s3 = t3;
+		return this;
+	}
+
+	public FastRandom copy() {
+		return new FastRandom(s0, s1, s2, s3);
+	}
+
+	/* Generators */
+	public long nextLong() {
+		long result = Long.rotateLeft(s1 * 5, 7) * 9;
+		long t = s1 << 17;
+
+		s2 ^= s0;
+		s3 ^= s1;
+		s1 ^= s2;
+		s0 ^= s3;
+		s2 ^= t;
+		s3 = Long.rotateLeft(s3, 45);
+
+		return result;
+	}
+
+	public int nextInt() {
+		return (int) (nextLong() >>> 32);
+	}
+
+	/**
+	 * @return Uniform int in [0, bound)
+	 */
+	public int nextInt(int bound) {
+		if(bound <= 0) throw new IllegalArgumentException("Bound must be positive: " + bound);
+
+		// Lemire's multiply and shift, rejecting the low products that would bias the result
+		long product = (nextLong() >>> 32) * bound;
+		if((int) product + Integer.MIN_VALUE < Integer.MIN_VALUE + bound) {
+			long threshold = (0x100000000L - bound) % bound;
+			while((product & 0xFFFFFFFFL) < threshold) {
+				product = (nextLong() >>> 32) * bound;
+			}
+		}
+		return (int) (product >>> 32);
+	}
+
+	/**
+	 * @return Uniform long in [0, bound)
+	 */
+	public long nextLong(long bound) {
+		if(bound <= 0) throw new IllegalArgumentException("Bound must be positive: " + bound);
+
+		long mask = bound - 1;
+		if((bound & mask) == 0) {
+			return nextLong() & mask;
+		}
+
+		// Rejection on the top bits, same as SplittableRandom
+		long r = nextLong() >>> 1;
+		for(long u=r; u + mask - (r = u % bound) < 0; u = nextLong() >>> 1);
+		return r;
+	}
+
+	/**
+	 * @return Uniform long in [min, max)
+	 */
+	public long nextLong(long min, long max) {
+		if(min >= max) throw new IllegalArgumentException("Min must be less than max: " + min + " >= " + max);
+
+		long range = max - min;
+		if(range > 0) {
+			return min + nextLong(range);
+		}
+
+		// Range overflows, draw until a value falls in
+		long r;
+		do { r = nextLong(); } while(r < min || r >= max);
+		return r;
+	}
+
+	public boolean nextBoolean() {
+		return nextLong() < 0;
+	}
+
+	/**
+	 * @return Uniform float in [0, 1), from the top 24 bits
+	 */
+	public float nextFloat() {
+		return (nextLong() >>> 40) * 0x1.0p-24f;
+	}
+
+	/**
+	 * @return Uniform double in [0, 1), from the top 53 bits
+	 */
+	public double nextDouble() {
+		return (nextLong() >>> 11) * 0x1.0p-53;
+	}
+
+	/**
+	 * @return Standard normal value (mean 0, standard deviation 1), by the ziggurat method
+	 */
+	public double nextGaussian() {
+		return Ziggurat.gaussian(this);
+	}
+
+	/**
+	 * @return Exponential value with rate 1 (mean 1), by the ziggurat method
+	 */
+	public double nextExponential() {
+		return Ziggurat.exponential(this);
+	}
+
+}
@@ -1,43 +1,86 @@
 package com.programmer.igoodie.utils.math;
 
-import java.util.Random;
-import java.util.concurrent.ThreadLocalRandom;
+import java.util.Iterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * Static random helpers backed by one {@link FastRandom} per thread, so threads never
+ * contend on a shared generator.
+ * <br/>
+ * Every generator is derived from a root seed. {@link #randomSeed(long)} replaces the root
+ * seed and gives the calling thread stream 0 of it, other threads pick up the new seed on
+ * their next call. Stream numbers of other threads follow the order of their first call,
+ * parallel code that needs to reproduce should use {@link #forStream(long)} per task instead.
+ */
 public class Randomizer {
 
-	private static final Random RANDOM = new Random();
+	private static class Local {
+		int epoch = -1;
+		FastRandom random;
+	}
+
+	private static final ThreadLocal<Local> LOCAL = ThreadLocal.withInitial(Local::new);
+	private static final AtomicLong STREAMS = new AtomicLong();
+
+	private static volatile long rootSeed = new FastRandom().nextLong();
+	private static volatile int epoch;
+
+	/**
+	 * @return Generator of the calling thread, not to be shared with other threads
+	 */
+	public static FastRandom current() {
+		Local local = LOCAL.get();
+		int current = epoch;
+		if(local.epoch != current) {
+			local.random = FastRandom.forStream(rootSeed, STREAMS.getAndIncrement());
+			local.epoch = current;
+		}
+		return local.random;
+	}
+
+	/**
+	 * @return New generator for stream <b>stream</b> of the current root seed,
+	 * the same for the same seed and stream on any thread
+	 */
+	public static FastRandom forStream(long stream) {
+		return FastRandom.forStream(rootSeed, stream);
+	}
 	
 	private static final char[] ALPHABET = ("abcdefghijklmnopqrstuvwxyz" + "abcdefghijklmnopqrstuvwxyz".toUpperCase()).toCharArray();
 	
 	public static String randomString(int length) {
-		String word = "";
-		for(int i=0; i<length; i++) {
-			word += randomChar();
-		}
-		return word;
+		return new String(randomChars(new char[length]));
 	}
 
 	public static char randomChar() {
-		return ALPHABET[RANDOM.nextInt(ALPHABET.length)];
+		return ALPHABET[current().nextInt(ALPHABET.length)];
 	}
 	
 	/**
-	 * Replace random seed of the randomizer with given one
-	 * @param seed New random seed
+	 * Replace root seed of the randomizer with given one
+	 * @param seed New root seed
 	 */
-	public static void randomSeed(long seed) {
-		RANDOM.setSeed(seed);
+	public static synchronized void randomSeed(long seed) {
+		rootSeed = seed;
+		STREAMS.set(1);
+		epoch++;
+
+		Local local = LOCAL.get();
+		local.random = FastRandom.forStream(seed, 0);
+		local.epoch = epoch;
 	}
 	
 	/**
-	 * Pseudo-randomize random seed of the randomizer
+	 * Pseudo-randomize root seed of the randomizer
 	 */
 	public static void randomSeed() {
-		RANDOM.setSeed(randomBoolean() ? System.currentTimeMillis() : RANDOM.nextInt());
+		randomSeed(new FastRandom().nextLong());
 	}
 	
 	public static boolean randomBoolean() {
-		return RANDOM.nextBoolean();
+		return current().nextBoolean();
 	}
 	
 	/**
@@ -45,7 +88,7 @@ public class Randomizer {
 	 * @return A random short value
 	 */
 	public static short randomShort() {
-		return (short) RANDOM.nextInt(Short.MAX_VALUE + 1);
+		return (short) current().nextInt(Short.MAX_VALUE + 1);
 	}
 	
 	/**
@@ -53,7 +96,7 @@ public class Randomizer {
 	 * @return A random integer value
 	 */
 	public static int randomInt() {
-		return RANDOM.nextInt();
+		return current().nextInt();
 	}
 	
 	/**
@@ -63,26 +106,26 @@ public class Randomizer {
 	 * @return A random integer value
 	 */
 	public static int randomInt(int min, int max) {
-		return RANDOM.nextInt(max - min + 1) + min;
+		return current().nextInt(max - min + 1) + min;
 	}
 
 	/**
-	 * Generates and returns a random long using {@link Random#nextLong()}
+	 * Generates and returns a random long using {@link FastRandom#nextLong()}
 	 * @return A random long value
 	 */
 	public static long randomLong() {
-		return RANDOM.nextLong();
+		return current().nextLong();
 	}
 	
 	/**
-	 * Generates and returns a random long between [<b>min</b> and <b>max</b>]
-	 * using {@link ThreadLocalRandom#nextLong(long, long)}
+	 * Generates and returns a random long between [<b>min</b> and <b>max</b>)
+	 * using {@link FastRandom#nextLong(long, long)}
 	 * @param min Minimum boundary for rng
 	 * @param max Maximum boundary for rng
 	 * @return A random integer value
 	 */
 	public static long randomLong(long min, long max) {
-		return ThreadLocalRandom.current().nextLong(min, max);
+		return current().nextLong(min, max);
 	}
 	
 	/**
@@ -90,7 +133,7 @@ public class Randomizer {
 	 * @return
 	 */
 	public static float randomFloat() {
-		return RANDOM.nextFloat();
+		return current().nextFloat();
 	}
 	
 	/**
@@ -100,7 +143,7 @@ public class Randomizer {
 	 * @return A random float value
 	 */
 	public static float randomFloat(float min, float max) {
-		return RANDOM.nextFloat() * (max-min) + min;
+		return current().nextFloat() * (max-min) + min;
 	}
 
 	/**
@@ -108,7 +151,7 @@ public class Randomizer {
 	 * @return
 	 */
 	public static double randomDouble() {
-		return RANDOM.nextDouble();
+		return current().nextDouble();
 	}
 	
 	/**
@@ -118,7 +161,285 @@ public class Randomizer {
 	 * @return A random double value
 	 */
 	public static double randomDouble(double min, double max) {
-		return RANDOM.nextDouble() * (max-min) + min;
+		return current().nextDouble() * (max-min) + min;
 	}
 	
+	/* Non-uniform */
+	/**
+	 * Generates and returns a normally distributed double using {@link FastRandom#nextGaussian()}
+	 * @return A random double with mean 0 and standard deviation 1
+	 */
+	public static double randomGaussian() {
+		return current().nextGaussian();
+	}
+
+	public static double randomGaussian(double mean, double deviation) {
+		return current().nextGaussian() * deviation + mean;
+	}
+
+	/**
+	 * Generates and returns an exponentially distributed double using {@link FastRandom#nextExponential()}
+	 * @return A random double with mean 1
+	 */
+	public static double randomExponential() {
+		return current().nextExponential();
+	}
+
+	/**
+	 * @param rate Rate of the distribution, mean is 1 / rate
+	 */
+	public static double randomExponential(double rate) {
+		return current().nextExponential() / rate;
+	}
+
+	/**
+	 * Uniformly samples min(n, reservoir.length) of the n elements left in <b>source</b>,
+	 * in a single pass without knowing n beforehand (Li's algorithm L). Random numbers are
+	 * only drawn for the elements that enter the reservoir, the rest are skipped over.
+	 * @param reservoir Array to be filled with the sample, in no particular order
+	 * @return Number of elements written to the reservoir
+	 */
+	public static <T> int randomSample(Iterator<? extends T> source, T[] reservoir) {
+		return randomSample(source, reservoir, current());
+	}
+
+	public static <T> int randomSample(Iterator<? extends T> source, T[] reservoir, FastRandom random) {
+		int k = reservoir.length;
+
+		int count = 0;
+		while(count < k && source.hasNext()) {
+			reservoir[count++] = source.next();
+		}
+		if(count < k || k == 0) {
+			return count;
+		}
+
+		// W is the largest of k uniforms, the gap to the next replaced element is geometric in it
+		double w = Math.exp(Math.log(1 - random.nextDouble()) / k);
+		while(true) {
+			double skip = Math.floor(Math.log(1 - random.nextDouble()) / Math.log(1 - w));
+			for(long i=0; i<skip; i++) {
+				if(!source.hasNext()) return k;
+				source.next();
+			}
+			if(!source.hasNext()) return k;
+
+			reservoir[random.nextInt(k)] = source.next();
+			w *= Math.exp(Math.log(1 - random.nextDouble()) / k);
+		}
+	}
+
+	/* Bulk Fills */
+	/**
+	 * Length of the chunks parallel fills are split into. Chunk <b>i</b> is filled by stream
+	 * <b>i</b> of a seed drawn from the calling thread's generator, so the result only depends
+	 * on that generator, not on the number of threads or the order chunks run in.
+	 */
+	public static final int FILL_CHUNK = 1 << 14;
+
+	interface ChunkFill {
+		void fill(FastRandom random, int from, int to);
+	}
+
+	static void fill(int length, ChunkFill fill, boolean parallel) {
+		if(!parallel || length <= FILL_CHUNK) {
+			fill.fill(current(), 0, length);
+			return;
+		}
+
+		long seed = current().nextLong();
+		int chunks = (length + FILL_CHUNK - 1) / FILL_CHUNK;
+		ForkJoinPool.commonPool().invoke(new FillTask(fill, seed, length, 0, chunks));
+	}
+
+	private static class FillTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final ChunkFill fill;
+		private final long seed;
+		private final int length, fromChunk, toChunk;
+
+		FillTask(ChunkFill fill, long seed, int length, int fromChunk, int toChunk) {
+			this.fill = fill;
+			this.seed = seed;
+			this.length = length;
+			this.fromChunk = fromChunk;
+			this.toChunk = toChunk;
+		}
+
+		@Override
+		protected void compute() {
+			if(toChunk - fromChunk == 1) {
+				int from = fromChunk * FILL_CHUNK;
+				fill.fill(FastRandom.forStream(seed, fromChunk), from, Math.min(length, from + FILL_CHUNK));
+				return;
+			}
+
+			int mid = (fromChunk + toChunk) >>> 1;
+			invokeAll(new FillTask(fill, seed, length, fromChunk, mid), new FillTask(fill, seed, length, mid, toChunk));
+		}
+	}
+
+	/**
+	 * Fills given array with random ints between {@link Integer.MIN_VALUE} and {@link Integer.MAX_VALUE}
+	 * @return Target array
+	 */
+	public static int[] randomInts(int[] target) {
+		fill(target.length, (random, from, to) -> fillInts(random, target, from, to), false);
+		return target;
+	}
+
+	public static int[] randomIntsParallel(int[] target) {
+		fill(target.length, (random, from, to) -> fillInts(random, target, from, to), true);
+		return target;
+	}
+
+	/**
+	 * Fills given array with random ints between [<b>min</b> and <b>max</b>]
+	 * @return Target array
+	 */
+	public static int[] randomInts(int[] target, int min, int max) {
+		fill(target.length, (random, from, to) -> fillInts(random, target, from, to, min, max), false);
+		return target;
+	}
+
+	public static int[] randomIntsParallel(int[] target, int min, int max) {
+		fill(target.length, (random, from, to) -> fillInts(random, target, from, to, min, max), true);
+		return target;
+	}
+
+	/**
+	 * Fills given array with random floats between [0.0f and 1.0f)
+	 * @return Target array
+	 */
+	public static float[] randomFloats(float[] target) {
+		return randomFloats(target, 0, 1);
+	}
+
+	public static float[] randomFloatsParallel(float[] target) {
+		return randomFloatsParallel(target, 0, 1);
+	}
+
+	/**
+	 * Fills given array with random floats between [<b>min</b> and <b>max</b>]
+	 * @return Target array
+	 */
+	public static float[] randomFloats(float[] target, float min, float max) {
+		fill(target.length, (random, from, to) -> fillFloats(random, target, from, to, min, max), false);
+		return target;
+	}
+
+	public static float[] randomFloatsParallel(float[] target, float min, float max) {
+		fill(target.length, (random, from, to) -> fillFloats(random, target, from, to, min, max), true);
+		return target;
+	}
+
+	/**
+	 * Fills given array with random doubles between [0.0d and 1.0d)
+	 * @return Target array
+	 */
+	public static double[] randomDoubles(double[] target) {
+		return randomDoubles(target, 0, 1);
+	}
+
+	public static double[] randomDoublesParallel(double[] target) {
+		return randomDoublesParallel(target, 0, 1);
+	}
+
+	/**
+	 * Fills given array with random doubles between [<b>min</b> and <b>max</b>]
+	 * @return Target array
+	 */
+	public static double[] randomDoubles(double[] target, double min, double max) {
+		fill(target.length, (random, from, to) -> fillDoubles(random, target, from, to, min, max), false);
+		return target;
+	}
+
+	public static double[] randomDoublesParallel(double[] target, double min, double max) {
+		fill(target.length, (random, from, to) -> fillDoubles(random, target, from, to, min, max), true);
+		return target;
+	}
+
+	/**
+	 * Fills given array with random bytes, 8 per generated long
+	 * @return Target array
+	 */
+	public static byte[] randomBytes(byte[] target) {
+		fill(target.length, (random, from, to) -> fillBytes(random, target, from, to), false);
+		return target;
+	}
+
+	public static byte[] randomBytesParallel(byte[] target) {
+		fill(target.length, (random, from, to) -> fillBytes(random, target, from, to), true);
+		return target;
+	}
+
+	/**
+	 * Fills given array with random letters, same as {@link #randomChar()}
+	 * @return Target array
+	 */
+	public static char[] randomChars(char[] target) {
+		fill(target.length, (random, from, to) -> fillChars(random, target, from, to), false);
+		return target;
+	}
+
+	public static char[] randomCharsParallel(char[] target) {
+		fill(target.length, (random, from, to) -> fillChars(random, target, from, to), true);
+		return target;
+	}
+
+	public static String randomStringParallel(int length) {
+		return new String(randomCharsParallel(new char[length]));
+	}
+
+	private static void fillInts(FastRandom random, int[] target, int from, int to) {
+		for(int i=from; i<to; i++) {
+			target[i] = random.nextInt();
+		}
+	}
+
+	private static void fillInts(FastRandom random, int[] target, int from, int to, int min, int max) {
+		int bound = max - min + 1;
+		for(int i=from; i<to; i++) {
+			target[i] = random.nextInt(bound) + min;
+		}
+	}
+
+	private static void fillFloats(FastRandom random, float[] target, int from, int to, float min, float max) {
+		float range = max - min;
+		for(int i=from; i<to; i++) {
+			target[i] = random.nextFloat() * range + min;
+		}
+	}
+
+	private static void fillDoubles(FastRandom random, double[] target, int from, int to, double min, double max) {
+		double range = max - min;
+		for(int i=from; i<to; i++) {
+			target[i] = random.nextDouble() * range + min;
+		}
+	}
+
+	private static void fillBytes(FastRandom random, byte[] target, int from, int to) {
+		int i = from;
+		for(int end=to-7; i<end; i+=8) {
+			long bits = random.nextLong();
+			for(int b=0; b<8; b++, bits>>>=8) {
+				target[i + b] = (byte) bits;
+			}
+		}
+		if(i < to) {
+			long bits = random.nextLong();
+			for(; i<to; i++, bits>>>=8) {
+				target[i] = (byte) bits;
+			}
+		}
+	}
+
+	private static void fillChars(FastRandom random, char[] target, int from, int to) {
+		for(int i=from; i<to; i++) {
+			target[i] = ALPHABET[random.nextInt(ALPHABET.length)];
+		}
+	}
+
 }
@@ -42,6 +42,45 @@ public class Vectorf {
 		return v1.dist(v2);
 	}
 
+	/**
+	 * Randomizes every vector of the array with {@link #randomize2D()}
+	 * @return Given array
+	 */
+	public static Vectorf[] randomize2D(Vectorf[] vectors) {
+		Randomizer.fill(vectors.length, (random, from, to) -> {
+			for(int i=from; i<to; i++) vectors[i].randomize2D(random);
+		}, false);
+		return vectors;
+	}
+
+	/**
+	 * Parallel {@link #randomize2D(Vectorf[])}, chunks are seeded as in {@link Randomizer#FILL_CHUNK}
+	 */
+	public static Vectorf[] randomize2DParallel(Vectorf[] vectors) {
+		Randomizer.fill(vectors.length, (random, from, to) -> {
+			for(int i=from; i<to; i++) vectors[i].randomize2D(random);
+		}, true);
+		return vectors;
+	}
+
+	/**
+	 * Randomizes every vector of the array with {@link #randomize3D()}
+	 * @return Given array
+	 */
+	public static Vectorf[] randomize3D(Vectorf[] vectors) {
+		Randomizer.fill(vectors.length, (random, from, to) -> {
+			for(int i=from; i<to; i++) vectors[i].randomize3D(random);
+		}, false);
+		return vectors;
+	}
+
+	public static Vectorf[] randomize3DParallel(Vectorf[] vectors) {
+		Randomizer.fill(vectors.length, (random, from, to) -> {
+			for(int i=from; i<to; i++) vectors[i].randomize3D(random);
+		}, true);
+		return vectors;
+	}
+
 	static public float angleBetween(Vectorf v1, Vectorf v2) {
 		if (v1.x == 0 && v1.y == 0 && v1.z == 0) return 0.0f;
 		if (v2.x == 0 && v2.y == 0 && v2.z == 0) return 0.0f;
@@ -120,12 +159,20 @@ public class Vectorf {
 	
 	/* Random 2D & 3D */
 	public Vectorf randomize2D() {
-		return normalizeWithAngle(Randomizer.randomFloat() * MathUtils.PI * 2);
+		return randomize2D(Randomizer.current());
+	}
+
+	public Vectorf randomize2D(FastRandom random) {
+		return normalizeWithAngle(random.nextFloat() * MathUtils.PI * 2);
 	}
 
 	public Vectorf randomize3D() {
-		float angle = Randomizer.randomFloat() * MathUtils.PI * 2;
-		float vz = Randomizer.randomFloat(-1, 1);
+		return randomize3D(Randomizer.current());
+	}
+
+	public Vectorf randomize3D(FastRandom random) {
+		float angle = random.nextFloat() * MathUtils.PI * 2;
+		float vz = random.nextFloat() * 2 - 1;
 		float vx = MathUtils.sqrt(1-vz*vz) * MathUtils.cos(angle);
 		float vy = MathUtils.sqrt(1-vz*vz) * MathUtils.sin(angle);
 		return set(vx, vy, vz);
@@ -250,6 +297,17 @@ public class Vectorf {
 		return this;
 	}
 
+	/**
+	 * Same as {@link #normalize()} using {@link FastMath#invSqrt(float)}.
+	 */
+	public Vectorf normalizeFast() {
+		float magSq = magSq();
+		if(magSq!=0) {
+			mult(FastMath.invSqrt(magSq));
+		}
+		return this;
+	}
+
 	public Vectorf limit(float max) {
 		if(magSq() > max*max) {
 			normalize();
@@ -276,10 +334,28 @@ public class Vectorf {
 		return MathUtils.atan2(y, x);
 	}
 
+	/**
+	 * Same as {@link #headingAngle()} using {@link FastMath#atan2(float, float)}.
+	 */
+	public float headingAngleFast() {
+		return FastMath.atan2(y, x);
+	}
+
 	public Vectorf rotate(float angle) {
+		return rotate(MathUtils.sin(angle), MathUtils.cos(angle));
+	}
+
+	/**
+	 * Same as {@link #rotate(float)} using {@link FastMath#sin(float)} and {@link FastMath#cos(float)}.
+	 */
+	public Vectorf rotateFast(float angle) {
+		return rotate(FastMath.sin(angle), FastMath.cos(angle));
+	}
+
+	private Vectorf rotate(float sin, float cos) {
 		float temp = x;
-		x = x*MathUtils.cos(angle) - y*MathUtils.sin(angle);
-		y = temp*MathUtils.sin(angle) + y*MathUtils.cos(angle);
+		x = x*cos - y*sin;
+		y = temp*sin + y*cos;
 		return this;
 	}
 
@@ -0,0 +1,399 @@
+package com.programmer.igoodie.utils.math;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Fixed size array of vectors, stored as three primitive float arrays (struct of arrays)
+ * instead of one {@link Vectorf} object per vector.
+ * <br/>
+ * Bulk operations are plain counted loops over the arrays with no calls or branches in
+ * their bodies, which is the shape C2 auto-vectorizes. Every bulk operation has a parallel
+ * variant splitting the index range over the common fork/join pool. Those only pay off
+ * for large arrays, below {@link #PARALLEL_THRESHOLD} vectors they run on the calling thread.
+ */
+public class VectorfArray {
+
+	public static final int PARALLEL_THRESHOLD = 1 << 14;
+
+	public static VectorfArray from(List<Vectorf> vectors) {
+		VectorfArray array = new VectorfArray(vectors.size());
+		for(int i=0; i<array.size; i++) {
+			array.set(i, vectors.get(i));
+		}
+		return array;
+	}
+
+	/* Fields */
+	public final int size;
+	public final float[] xs, ys, zs;
+
+	/* Constructors */
+	public VectorfArray(int size) {
+		if(size < 0) throw new IllegalArgumentException("Size cannot be negative: " + size);
+		this.size = size;
+		this.xs = new float[size];
+		this.ys = new float[size];
+		this.zs = new float[size];
+	}
+
+	/* Set & Get */
+	public VectorfArray set(int index, float x, float y) {
+		xs[index] = x;
+		ys[index] = y;
+		return this;
+	}
+
+	public VectorfArray set(int index, float x, float y, float z) {
+		xs[index] = x;
+		ys[index] = y;
+		zs[index] = z;
+		return this;
+	}
+
+	public VectorfArray set(int index, Vectorf v) {
+		return set(index, v.x, v.y, v.z);
+	}
+
+	public Vectorf get(int index, Vectorf target) {
+		return target.set(xs[index], ys[index], zs[index]);
+	}
+
+	public Vectorf get(int index) {
+		return get(index, new Vectorf());
+	}
+
+	public VectorfArray copy() {
+		VectorfArray copy = new VectorfArray(size);
+		System.arraycopy(xs, 0, copy.xs, 0, size);
+		System.arraycopy(ys, 0, copy.ys, 0, size);
+		System.arraycopy(zs, 0, copy.zs, 0, size);
+		return copy;
+	}
+
+	/* Random 2D & 3D */
+	/**
+	 * Sets every vector to a random unit vector on the XY plane, as {@link Vectorf#randomize2D()}
+	 */
+	public VectorfArray randomize2D() {
+		Randomizer.fill(size, this::randomize2D, false);
+		return this;
+	}
+
+	/**
+	 * Parallel {@link #randomize2D()}, chunks are seeded as in {@link Randomizer#FILL_CHUNK}
+	 */
+	public VectorfArray randomize2DParallel() {
+		Randomizer.fill(size, this::randomize2D, true);
+		return this;
+	}
+
+	/**
+	 * Sets every vector to a random unit vector, as {@link Vectorf#randomize3D()}
+	 */
+	public VectorfArray randomize3D() {
+		Randomizer.fill(size, this::randomize3D, false);
+		return this;
+	}
+
+	public VectorfArray randomize3DParallel() {
+		Randomizer.fill(size, this::randomize3D, true);
+		return this;
+	}
+
+	private void randomize2D(FastRandom random, int from, int to) {
+		for(int i=from; i<to; i++) {
+			float angle = random.nextFloat() * MathUtils.PI * 2;
+			xs[i] = MathUtils.cos(angle);
+			ys[i] = MathUtils.sin(angle);
+			zs[i] = 0;
+		}
+	}
+
+	private void randomize3D(FastRandom random, int from, int to) {
+		for(int i=from; i<to; i++) {
+			float angle = random.nextFloat() * MathUtils.PI * 2;
+			float z = random.nextFloat() * 2 - 1;
+			float r = MathUtils.sqrt(1 - z*z);
+			xs[i] = r * MathUtils.cos(angle);
+			ys[i] = r * MathUtils.sin(angle);
+			zs[i] = z;
+		}
+	}
+
+	/* Add */
+	public VectorfArray add(VectorfArray v) {
+		checkSize(v);
+		return apply((from, to) -> add(v, 1f, from, to), false);
+	}
+
+	public VectorfArray addParallel(VectorfArray v) {
+		checkSize(v);
+		return apply((from, to) -> add(v, 1f, from, to), true);
+	}
+
+	public VectorfArray add(float x, float y, float z) {
+		return apply((from, to) -> add(x, y, z, from, to), false);
+	}
+
+	public VectorfArray addParallel(float x, float y, float z) {
+		return apply((from, to) -> add(x, y, z, from, to), true);
+	}
+
+	/**
+	 * Adds <b>v * n</b> to every vector, e.g. positions integrated
+	 * with velocities over a time step: <code>positions.addScaled(velocities, dt)</code>
+	 */
+	public VectorfArray addScaled(VectorfArray v, float n) {
+		checkSize(v);
+		return apply((from, to) -> add(v, n, from, to), false);
+	}
+
+	public VectorfArray addScaledParallel(VectorfArray v, float n) {
+		checkSize(v);
+		return apply((from, to) -> add(v, n, from, to), true);
+	}
+
+	private void add(VectorfArray v, float n, int from, int to) {
+		float[] xs = this.xs, ys = this.ys, zs = this.zs;
+		float[] vxs = v.xs, vys = v.ys, vzs = v.zs;
+		for(int i=from; i<to; i++) {
+			xs[i] += vxs[i] * n;
+			ys[i] += vys[i] * n;
+			zs[i] += vzs[i] * n;
+		}
+	}
+
+	private void add(float x, float y, float z, int from, int to) {
+		float[] xs = this.xs, ys = this.ys, zs = this.zs;
+		for(int i=from; i<to; i++) {
+			xs[i] += x;
+			ys[i] += y;
+			zs[i] += z;
+		}
+	}
+
+	/**
+	 * Explicit Euler step: velocities += accelerations * dt, then positions += velocities * dt.
+	 * Fused so each index is visited once.
+	 */
+	public VectorfArray integrate(VectorfArray velocities, VectorfArray accelerations, float dt) {
+		checkSize(accelerations);
+		checkSize(velocities);
+		return apply((from, to) -> integrate(velocities, accelerations, dt, from, to), false);
+	}
+
+	public VectorfArray integrateParallel(VectorfArray velocities, VectorfArray accelerations, float dt) {
+		checkSize(accelerations);
+		checkSize(velocities);
+		return apply((from, to) -> integrate(velocities, accelerations, dt, from, to), true);
+	}
+
+	private void integrate(VectorfArray velocities, VectorfArray accelerations, float dt, int from, int to) {
+		float[] xs = this.xs, ys = this.ys, zs = this.zs;
+		float[] vxs = velocities.xs, vys = velocities.ys, vzs = velocities.zs;
+		float[] axs = accelerations.xs, ays = accelerations.ys, azs = accelerations.zs;
+		for(int i=from; i<to; i++) {
+			float vx = vxs[i] + axs[i] * dt;
+			float vy = vys[i] + ays[i] * dt;
+			float vz = vzs[i] + azs[i] * dt;
+			vxs[i] = vx;
+			vys[i] = vy;
+			vzs[i] = vz;
+			xs[i] += vx * dt;
+			ys[i] += vy * dt;
+			zs[i] += vz * dt;
+		}
+	}
+
+	/* Scale */
+	public VectorfArray scale(float n) {
+		return apply((from, to) -> scale(n, from, to), false);
+	}
+
+	public VectorfArray scaleParallel(float n) {
+		return apply((from, to) -> scale(n, from, to), true);
+	}
+
+	private void scale(float n, int from, int to) {
+		float[] xs = this.xs, ys = this.ys, zs = this.zs;
+		for(int i=from; i<to; i++) {
+			xs[i] *= n;
+			ys[i] *= n;
+			zs[i] *= n;
+		}
+	}
+
+	/* Normalize & Limiters */
+	/**
+	 * Normalizes every vector, zero vectors stay zero.
+	 */
+	public VectorfArray normalize() {
+		return apply(this::normalize, false);
+	}
+
+	public VectorfArray normalizeParallel() {
+		return apply(this::normalize, true);
+	}
+
+	private void normalize(int from, int to) {
+		float[] xs = this.xs, ys = this.ys, zs = this.zs;
+		for(int i=from; i<to; i++) {
+			float x = xs[i], y = ys[i], z = zs[i];
+			// Flooring magSq instead of branching on zero, zero vectors get multiplied by a finite value
+			float inv = 1f / (float) Math.sqrt(Math.max(x*x + y*y + z*z, Float.MIN_NORMAL));
+			xs[i] = x * inv;
+			ys[i] = y * inv;
+			zs[i] = z * inv;
+		}
+	}
+
+	public VectorfArray limit(float max) {
+		return apply((from, to) -> limit(max, from, to), false);
+	}
+
+	public VectorfArray limitParallel(float max) {
+		return apply((from, to) -> limit(max, from, to), true);
+	}
+
+	private void limit(float max, int from, int to) {
+		float[] xs = this.xs, ys = this.ys, zs = this.zs;
+		float maxSq = max * max;
+		for(int i=from; i<to; i++) {
+			float x = xs[i], y = ys[i], z = zs[i];
+			// Short and zero vectors keep a factor of 1 without taking the square root
+			float magSq = x*x + y*y + z*z;
+			float factor = magSq > maxSq ? max / (float) Math.sqrt(magSq) : 1f;
+			xs[i] = x * factor;
+			ys[i] = y * factor;
+			zs[i] = z * factor;
+		}
+	}
+
+	/* Lerp */
+	public VectorfArray lerp(VectorfArray v, float amt) {
+		checkSize(v);
+		return apply((from, to) -> lerp(v, amt, from, to), false);
+	}
+
+	public VectorfArray lerpParallel(VectorfArray v, float amt) {
+		checkSize(v);
+		return apply((from, to) -> lerp(v, amt, from, to), true);
+	}
+
+	private void lerp(VectorfArray v, float amt, int from, int to) {
+		float[] xs = this.xs, ys = this.ys, zs = this.zs;
+		float[] vxs = v.xs, vys = v.ys, vzs = v.zs;
+		for(int i=from; i<to; i++) {
+			xs[i] += (vxs[i] - xs[i]) * amt;
+			ys[i] += (vys[i] - ys[i]) * amt;
+			zs[i] += (vzs[i] - zs[i]) * amt;
+		}
+	}
+
+	/* Dist */
+	/**
+	 * Writes the distance of every vector to the given point into <b>target</b>.
+	 * @param target Array to be filled, allocated if null
+	 * @return Target array
+	 */
+	public float[] dist(float x, float y, float z, float[] target) {
+		float[] out = checkTarget(target);
+		apply((from, to) -> dist(x, y, z, out, from, to), false);
+		return out;
+	}
+
+	public float[] distParallel(float x, float y, float z, float[] target) {
+		float[] out = checkTarget(target);
+		apply((from, to) -> dist(x, y, z, out, from, to), true);
+		return out;
+	}
+
+	private void dist(float x, float y, float z, float[] out, int from, int to) {
+		float[] xs = this.xs, ys = this.ys, zs = this.zs;
+		for(int i=from; i<to; i++) {
+			float dx = xs[i] - x, dy = ys[i] - y, dz = zs[i] - z;
+			out[i] = (float) Math.sqrt(dx*dx + dy*dy + dz*dz);
+		}
+	}
+
+	/**
+	 * Same as {@link #dist(float, float, float, float[])} without the square root,
+	 * enough for comparing against a squared radius.
+	 */
+	public float[] distSq(float x, float y, float z, float[] target) {
+		float[] out = checkTarget(target);
+		apply((from, to) -> distSq(x, y, z, out, from, to), false);
+		return out;
+	}
+
+	public float[] distSqParallel(float x, float y, float z, float[] target) {
+		float[] out = checkTarget(target);
+		apply((from, to) -> distSq(x, y, z, out, from, to), true);
+		return out;
+	}
+
+	private void distSq(float x, float y, float z, float[] out, int from, int to) {
+		float[] xs = this.xs, ys = this.ys, zs = this.zs;
+		for(int i=from; i<to; i++) {
+			float dx = xs[i] - x, dy = ys[i] - y, dz = zs[i] - z;
+			out[i] = dx*dx + dy*dy + dz*dz;
+		}
+	}
+
+	/* Range Splitting */
+	private interface RangeOp {
+		void apply(int from, int to);
+	}
+
+	private VectorfArray apply(RangeOp op, boolean parallel) {
+		if(!parallel || size <= PARALLEL_THRESHOLD) {
+			op.apply(0, size);
+		}
+		else {
+			ForkJoinPool.commonPool().invoke(new RangeTask(op, 0, size));
+		}
+		return this;
+	}
+
+	private static class RangeTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final RangeOp op;
+		private final int from, to;
+
+		RangeTask(RangeOp op, int from, int to) {
+			this.op = op;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if(to - from <= PARALLEL_THRESHOLD) {
+				op.apply(from, to);
+				return;
+			}
+
+			int mid = (from + to) >>> 1;
+			invokeAll(new RangeTask(op, from, mid), new RangeTask(op, mid, to));
+		}
+	}
+
+	private void checkSize(VectorfArray other) {
+		if(other.size < size) {
+			throw new IllegalArgumentException("Expected at least " + size + " vectors, got " + other.size);
+		}
+	}
+
+	private float[] checkTarget(float[] target) {
+		if(target == null) return new float[size];
+		if(target.length < size) {
+			throw new IllegalArgumentException("Expected at least " + size + " floats, got " + target.length);
+		}
+		return target;
+	}
+
+}
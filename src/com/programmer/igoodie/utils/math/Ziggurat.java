@@ -0,0 +1,108 @@
+package com.programmer.igoodie.utils.math;
+
+/**
+ * Ziggurat tables and samplers (Marsaglia and Tsang, with Doornik's layer test)
+ * for the standard normal and exponential distributions.
+ * <br/>
+ * The density is covered by equal area layers. A draw picks a layer and a point in it,
+ * which lies under the density right away in ~99% of the draws. Only the rest evaluate
+ * an exp or fall to the tail. Both the layer and the point come from a single long.
+ */
+final class Ziggurat {
+
+	private static final int NORMAL_LAYERS = 128;
+	private static final double NORMAL_R = 3.442619855899;
+	private static final double NORMAL_V = 9.91256303526217e-3;
+
+	private static final int EXP_LAYERS = 256;
+	private static final double EXP_R = 7.69711747013104972;
+	private static final double EXP_V = 3.949659822581572e-3;
+
+	// Layer i spans [0, x[i]], layer i+1 lies on top of it. f[i] is the density at x[i].
+	private static final double[] NORMAL_X = new double[NORMAL_LAYERS + 1];
+	private static final double[] NORMAL_F = new double[NORMAL_LAYERS + 1];
+	private static final double[] NORMAL_RATIO = new double[NORMAL_LAYERS];
+
+	private static final double[] EXP_X = new double[EXP_LAYERS + 1];
+	private static final double[] EXP_F = new double[EXP_LAYERS + 1];
+	private static final double[] EXP_RATIO = new double[EXP_LAYERS];
+
+	static {
+		double f = Math.exp(-0.5 * NORMAL_R * NORMAL_R);
+		NORMAL_X[0] = NORMAL_V / f;
+		NORMAL_X[1] = NORMAL_R;
+		for(int i=2; i<NORMAL_LAYERS; i++) {
+			double prev = NORMAL_X[i - 1];
+			NORMAL_X[i] = Math.sqrt(-2 * Math.log(NORMAL_V / prev + Math.exp(-0.5 * prev * prev)));
+		}
+		for(int i=0; i<=NORMAL_LAYERS; i++) NORMAL_F[i] = Math.exp(-0.5 * NORMAL_X[i] * NORMAL_X[i]);
+		for(int i=0; i<NORMAL_LAYERS; i++) NORMAL_RATIO[i] = NORMAL_X[i + 1] / NORMAL_X[i];
+
+		EXP_X[0] = EXP_V / Math.exp(-EXP_R);
+		EXP_X[1] = EXP_R;
+		for(int i=2; i<EXP_LAYERS; i++) {
+			double prev = EXP_X[i - 1];
+			EXP_X[i] = -Math.log(EXP_V / prev + Math.exp(-prev));
+		}
+		for(int i=0; i<=EXP_LAYERS; i++) EXP_F[i] = Math.exp(-EXP_X[i]);
+		for(int i=0; i<EXP_LAYERS; i++) EXP_RATIO[i] = EXP_X[i + 1] / EXP_X[i];
+	}
+
+	private Ziggurat() {}
+
+	static double gaussian(FastRandom random) {
+		while(true) {
+			long bits = random.nextLong();
+			int i = (int) bits & (NORMAL_LAYERS - 1);
+			// Top 53 bits to (-1, 1), independent of the low 7 layer bits
+			double u = (bits >>> 11) * 0x1.0p-52 - 1;
+
+			if(Math.abs(u) < NORMAL_RATIO[i]) {
+				return u * NORMAL_X[i];
+			}
+
+			if(i == 0) {
+				return u < 0 ? -normalTail(random) : normalTail(random);
+			}
+
+			double x = u * NORMAL_X[i];
+			double y = NORMAL_F[i] + random.nextDouble() * (NORMAL_F[i + 1] - NORMAL_F[i]);
+			if(y < Math.exp(-0.5 * x * x)) {
+				return x;
+			}
+		}
+	}
+
+	private static double normalTail(FastRandom random) {
+		double x, y;
+		do {
+			x = -Math.log(1 - random.nextDouble()) / NORMAL_R;
+			y = -Math.log(1 - random.nextDouble());
+		} while(2 * y < x * x);
+		return NORMAL_R + x;
+	}
+
+	static double exponential(FastRandom random) {
+		while(true) {
+			long bits = random.nextLong();
+			int i = (int) bits & (EXP_LAYERS - 1);
+			double u = (bits >>> 11) * 0x1.0p-53;
+
+			if(u < EXP_RATIO[i]) {
+				return u * EXP_X[i];
+			}
+
+			if(i == 0) {
+				// Memoryless, the tail is the distribution shifted by R
+				return EXP_R - Math.log(1 - random.nextDouble());
+			}
+
+			double x = u * EXP_X[i];
+			double y = EXP_F[i] + random.nextDouble() * (EXP_F[i + 1] - EXP_F[i]);
+			if(y < Math.exp(-x)) {
+				return x;
+			}
+		}
+	}
+
+}
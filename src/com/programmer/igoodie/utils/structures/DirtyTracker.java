@@ -0,0 +1,11 @@
+package com.programmer.igoodie.utils.structures;
+
+/**
+ * Gets notified when a {@link TrackedEntity} moves for the first time since it was
+ * last indexed, so the index can re-index only the entities that moved.
+ */
+public interface DirtyTracker {
+
+	void markDirty(TrackedEntity entity);
+
+}
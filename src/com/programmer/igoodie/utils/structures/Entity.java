@@ -12,6 +12,10 @@ public class Entity {
 		position = new Vectorf(x, y);
 	}
 	
+	public Entity(float x, float y, float z) {
+		position = new Vectorf(x, y, z);
+	}
+	
 	@Override
 	public boolean equals(Object obj) {
 		if(!(obj instanceof Entity)) return false;
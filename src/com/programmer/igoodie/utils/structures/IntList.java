@@ -0,0 +1,77 @@
+package com.programmer.igoodie.utils.structures;
+
+import java.util.Arrays;
+
+/**
+ * Growable list of primitive ints. Used to collect ids without boxing,
+ * can be cleared and reused to avoid allocating on every query.
+ */
+public class IntList {
+
+	private int[] data;
+	private int size;
+
+	public IntList() {
+		this(16);
+	}
+
+	public IntList(int capacity) {
+		data = new int[Math.max(1, capacity)];
+	}
+
+	public void add(int value) {
+		if(size == data.length) {
+			data = Arrays.copyOf(data, size * 2);
+		}
+		data[size++] = value;
+	}
+
+	public int get(int index) {
+		if(index >= size) throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		return data[index];
+	}
+
+	public void set(int index, int value) {
+		if(index >= size) throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		data[index] = value;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public void clear() {
+		size = 0;
+	}
+
+	public boolean contains(int value) {
+		for(int i=0; i<size; i++) {
+			if(data[i] == value) return true;
+		}
+		return false;
+	}
+
+	public void sort() {
+		Arrays.sort(data, 0, size);
+	}
+
+	public int[] toArray() {
+		return Arrays.copyOf(data, size);
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder("[");
+		for(int i=0; i<size; i++) {
+			if(i != 0) sb.append(", ");
+			sb.append(data[i]);
+		}
+		sb.append("]");
+		return sb.toString();
+	}
+
+}
@@ -0,0 +1,82 @@
+package com.programmer.igoodie.utils.structures;
+
+import com.programmer.igoodie.utils.math.Vectorf;
+
+/**
+ * Entity that reports its moves to the index holding it.
+ * <br/>
+ * Position must be changed through {@link #moveTo(float, float)} or
+ * {@link #moveBy(float, float)}, writes to {@link #position} itself go unnoticed.
+ * First move after being indexed marks the entity dirty and notifies the tracker,
+ * further moves until the next refresh cost nothing extra.
+ */
+public class TrackedEntity extends Entity {
+
+	private DirtyTracker tracker;
+	private boolean dirty;
+
+	// Position the entity was indexed at
+	private final Vectorf indexedPosition = new Vectorf();
+
+	public TrackedEntity() {
+		position = new Vectorf();
+	}
+
+	public TrackedEntity(float x, float y) {
+		super(x, y);
+	}
+
+	public TrackedEntity(float x, float y, float z) {
+		super(x, y, z);
+	}
+
+	public void moveTo(float x, float y) {
+		position.set(x, y);
+		markDirty();
+	}
+
+	public void moveBy(float dx, float dy) {
+		position.add(dx, dy);
+		markDirty();
+	}
+
+	private void markDirty() {
+		if(!dirty && tracker != null) {
+			dirty = true;
+			tracker.markDirty(this);
+		}
+	}
+
+	public boolean isDirty() {
+		return dirty;
+	}
+
+	public DirtyTracker getTracker() {
+		return tracker;
+	}
+
+	/**
+	 * @return Position the entity had when it was last indexed
+	 */
+	public Vectorf getIndexedPosition() {
+		return indexedPosition;
+	}
+
+	/**
+	 * Called by the index after it (re-)indexed the entity at its current position.
+	 */
+	public void indexed(DirtyTracker tracker) {
+		this.tracker = tracker;
+		this.dirty = false;
+		this.indexedPosition.set(position.x, position.y, position.z);
+	}
+
+	/**
+	 * Called by the index after the entity was removed from it.
+	 */
+	public void detach() {
+		this.tracker = null;
+		this.dirty = false;
+	}
+
+}
@@ -0,0 +1,51 @@
+package com.programmer.igoodie.utils.structures.shapes;
+
+import com.programmer.igoodie.utils.structures.Entity;
+
+public class Box {
+
+	public float x, y, z;
+	public float w, h, d;
+	
+	public Box(float x, float y, float z, float w, float h, float d) {
+		this.x = x;
+		this.y = y;
+		this.z = z;
+		this.w = w;
+		this.h = h;
+		this.d = d;
+	}
+	
+	public Box(float x, float y, float z) {
+		this(x, y, z, 0, 0, 0);
+	}
+	
+	public Box() {
+		this(0, 0, 0, 0, 0, 0);
+	}
+	
+	public boolean containsPoint(float x, float y, float z) {
+		return this.x < x && x < this.x + this.w
+				&& this.y < y && y < this.y + this.h
+				&& this.z < z && z < this.z + this.d;
+	}
+	
+	public boolean containsPoint(Entity entity) {
+		return containsPoint(entity.position.x, entity.position.y, entity.position.z);
+	}
+
+	public boolean intersects(float x, float y, float z, float w, float h, float d) {
+		return (this.x + this.w >= x) && (x + w >= this.x)
+				&& (this.y + this.h >= y) && (y + h >= this.y)
+				&& (this.z + this.d >= z) && (z + d >= this.z);
+	}
+	
+	public boolean intersects(Box box) {
+		return intersects(box.x, box.y, box.z, box.w, box.h, box.d);
+	}
+	
+	@Override
+	public String toString() {
+		return "[x:" + x + ", y:" + y + ", z:" + z + ", w:" + w + ", h:" + h + ", d:" + d + "]";
+	}
+}
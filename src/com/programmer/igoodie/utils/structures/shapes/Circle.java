@@ -3,10 +3,14 @@ package com.programmer.igoodie.utils.structures.shapes;
 import com.programmer.igoodie.utils.math.MathUtils;
 import com.programmer.igoodie.utils.structures.Entity;
 
-public class Circle {
+public class Circle implements Shape {
 
 	public float x, y;
 	public float radius;
+
+	// Bounds are recomputed in place only when the circle changed since the last call
+	private Rectangle bounds;
+	private float boundsX, boundsY, boundsRadius;
 	
 	public Circle(float x, float y) {
 		this.x = x;
@@ -20,14 +24,35 @@ public class Circle {
 	}
 	
 	public boolean containsPoint(float x, float y) {
-		float dx = (this.x - x) * (this.x - x);
-		float dy = (this.y - y) * (this.y - y);
+		float dx = this.x - x;
+		float dy = this.y - y;
 		return (dx*dx + dy*dy) < this.radius * this.radius;
 	}
 	
 	public boolean containsPoint(Entity entity) {
 		return containsPoint(entity.position.x, entity.position.y);
 	}
+
+	@Override
+	public Rectangle bounds() {
+		if(bounds == null) {
+			bounds = new Rectangle(x - radius, y - radius, 2 * radius, 2 * radius);
+		}
+		else if(boundsX != x || boundsY != y || boundsRadius != radius) {
+			bounds.x = x - radius;
+			bounds.y = y - radius;
+			bounds.w = bounds.h = 2 * radius;
+		}
+		boundsX = x;
+		boundsY = y;
+		boundsRadius = radius;
+		return bounds;
+	}
+
+	@Override
+	public boolean intersectsRect(float x, float y, float w, float h) {
+		return intersects(x, y, w, h);
+	}
 	
 	//TODO : Check validity of the usage of clamp function
 	public boolean intersects(float x, float y, float w, float h) {
@@ -43,7 +68,7 @@ public class Circle {
 	public boolean intersects(float x, float y, float radius) {
 		float dx = this.x - x;
 		float dy = this.y - y;
-		float dr = this.radius - radius;
+		float dr = this.radius + radius;
 		
 		return dx*dx + dy*dy <= dr*dr;
 	}
@@ -0,0 +1,140 @@
+package com.programmer.igoodie.utils.structures.shapes;
+
+/**
+ * Circular sector, e.g. a cone of vision: points within <b>range</b> of the apex
+ * whose direction is within <b>halfAngle</b> of the facing direction.
+ * Angles are in radians. Bounds are computed once in the constructor.
+ */
+public class Cone implements Shape {
+
+	public final float x, y;
+	public final float angle, halfAngle;
+	public final float range;
+
+	private final float dirX, dirY, cosHalfAngle;
+	private final Rectangle bounds;
+
+	public Cone(float x, float y, float angle, float halfAngle, float range) {
+		this.x = x;
+		this.y = y;
+		this.angle = angle;
+		this.halfAngle = halfAngle;
+		this.range = range;
+
+		this.dirX = (float) Math.cos(angle);
+		this.dirY = (float) Math.sin(angle);
+		this.cosHalfAngle = (float) Math.cos(halfAngle);
+		this.bounds = computeBounds();
+	}
+
+	/**
+	 * Apex, both ends of the arc and every axis extreme of the circle the arc passes.
+	 */
+	private Rectangle computeBounds() {
+		if(halfAngle >= Math.PI) {
+			return new Rectangle(x - range, y - range, 2 * range, 2 * range);
+		}
+
+		float minX = x, minY = y, maxX = x, maxY = y;
+		float[] angles = { angle - halfAngle, angle + halfAngle,
+				0, (float) (Math.PI / 2), (float) Math.PI, (float) (3 * Math.PI / 2) };
+
+		for(int i=0; i<angles.length; i++) {
+			float a = angles[i];
+			if(i >= 2 && !withinArc(a)) continue;
+			float px = x + range * (float) Math.cos(a), py = y + range * (float) Math.sin(a);
+			minX = Math.min(minX, px);
+			minY = Math.min(minY, py);
+			maxX = Math.max(maxX, px);
+			maxY = Math.max(maxY, py);
+		}
+
+		return new Rectangle(minX, minY, maxX - minX, maxY - minY);
+	}
+
+	private boolean withinArc(float a) {
+		double delta = Math.IEEEremainder(a - angle, 2 * Math.PI);
+		return Math.abs(delta) <= halfAngle;
+	}
+
+	@Override
+	public Rectangle bounds() {
+		return bounds;
+	}
+
+	@Override
+	public boolean containsPoint(float px, float py) {
+		float dx = px - x, dy = py - y;
+		float distSq = dx*dx + dy*dy;
+		if(distSq >= range * range) return false;
+		if(distSq == 0) return true;
+
+		// cos(angle to point) >= cos(halfAngle), without dividing by the distance
+		float dot = dx * dirX + dy * dirY;
+		if(cosHalfAngle >= 0) {
+			return dot >= 0 && dot * dot >= cosHalfAngle * cosHalfAngle * distSq;
+		}
+		return dot >= 0 || dot * dot <= cosHalfAngle * cosHalfAngle * distSq;
+	}
+
+	/**
+	 * Rectangle has to reach both the range circle and the wedge of the cone, which may
+	 * report a rectangle near the arc that only touches them separately. Cones wider than
+	 * a half plane are only checked against the circle.
+	 */
+	@Override
+	public boolean intersectsRect(float rx, float ry, float rw, float rh) {
+		if(!bounds.intersects(rx, ry, rw, rh)) return false;
+
+		// Reaches the range circle
+		float cx = Math.max(rx, Math.min(x, rx + rw)) - x;
+		float cy = Math.max(ry, Math.min(y, ry + rh)) - y;
+		if(cx*cx + cy*cy >= range * range) return false;
+
+		if(halfAngle > Math.PI / 2) return true;
+
+		// Apex inside, or a corner inside the wedge
+		if(rx <= x && x <= rx + rw && ry <= y && y <= ry + rh) return true;
+		if(inWedge(rx, ry) || inWedge(rx + rw, ry) || inWedge(rx, ry + rh) || inWedge(rx + rw, ry + rh)) return true;
+
+		// Otherwise one of the wedge edges has to cross the rectangle
+		return rayHits(angle - halfAngle, rx, ry, rw, rh) || rayHits(angle + halfAngle, rx, ry, rw, rh);
+	}
+
+	private boolean inWedge(float px, float py) {
+		float dx = px - x, dy = py - y;
+		float dot = dx * dirX + dy * dirY;
+		return dot >= 0 && dot * dot >= cosHalfAngle * cosHalfAngle * (dx*dx + dy*dy);
+	}
+
+	private boolean rayHits(float a, float rx, float ry, float rw, float rh) {
+		float dx = (float) Math.cos(a), dy = (float) Math.sin(a);
+		// Not clipped to the range, the edge may cross beyond it while the sector still overlaps
+		float tMin = 0, tMax = Float.POSITIVE_INFINITY;
+
+		if(dx != 0) {
+			float t1 = (rx - x) / dx, t2 = (rx + rw - x) / dx;
+			tMin = Math.max(tMin, Math.min(t1, t2));
+			tMax = Math.min(tMax, Math.max(t1, t2));
+		}
+		else if(x < rx || x > rx + rw) {
+			return false;
+		}
+
+		if(dy != 0) {
+			float t1 = (ry - y) / dy, t2 = (ry + rh - y) / dy;
+			tMin = Math.max(tMin, Math.min(t1, t2));
+			tMax = Math.min(tMax, Math.max(t1, t2));
+		}
+		else if(y < ry || y > ry + rh) {
+			return false;
+		}
+
+		return tMin <= tMax;
+	}
+
+	@Override
+	public String toString() {
+		return "Cone[x:" + x + ", y:" + y + ", angle:" + angle + ", halfAngle:" + halfAngle + ", range:" + range + "]";
+	}
+}
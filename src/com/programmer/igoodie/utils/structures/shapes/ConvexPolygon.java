@@ -0,0 +1,115 @@
+package com.programmer.igoodie.utils.structures.shapes;
+
+import java.util.Arrays;
+
+/**
+ * Convex polygon, e.g. a view frustum projected onto the ground.
+ * Vertices may be given in either winding, they are stored counter-clockwise
+ * (in a y-up frame). Bounds are computed once in the constructor.
+ */
+public class ConvexPolygon implements Shape {
+
+	public final float[] xs, ys;
+	private final Rectangle bounds;
+
+	public ConvexPolygon(float[] xs, float[] ys) {
+		if(xs.length != ys.length || xs.length < 3) {
+			throw new IllegalArgumentException("Polygon needs at least 3 vertices with both coordinates");
+		}
+
+		this.xs = xs.clone();
+		this.ys = ys.clone();
+
+		if(signedArea() < 0) {
+			reverse(this.xs);
+			reverse(this.ys);
+		}
+
+		float minX = Float.POSITIVE_INFINITY, minY = Float.POSITIVE_INFINITY;
+		float maxX = Float.NEGATIVE_INFINITY, maxY = Float.NEGATIVE_INFINITY;
+		for(int i=0; i<xs.length; i++) {
+			minX = Math.min(minX, xs[i]);
+			minY = Math.min(minY, ys[i]);
+			maxX = Math.max(maxX, xs[i]);
+			maxY = Math.max(maxY, ys[i]);
+		}
+		this.bounds = new Rectangle(minX, minY, maxX - minX, maxY - minY);
+	}
+
+	/**
+	 * @param coordinates Vertices as x0, y0, x1, y1...
+	 */
+	public static ConvexPolygon of(float... coordinates) {
+		float[] xs = new float[coordinates.length / 2], ys = new float[coordinates.length / 2];
+		for(int i=0; i<xs.length; i++) {
+			xs[i] = coordinates[2*i];
+			ys[i] = coordinates[2*i+1];
+		}
+		return new ConvexPolygon(xs, ys);
+	}
+
+	private float signedArea() {
+		float area = 0;
+		for(int i=0, j=xs.length-1; i<xs.length; j=i++) {
+			area += xs[j] * ys[i] - xs[i] * ys[j];
+		}
+		return area / 2;
+	}
+
+	private static void reverse(float[] array) {
+		for(int i=0, j=array.length-1; i<j; i++, j--) {
+			float temp = array[i];
+			array[i] = array[j];
+			array[j] = temp;
+		}
+	}
+
+	@Override
+	public Rectangle bounds() {
+		return bounds;
+	}
+
+	/**
+	 * @return True if the point is strictly on the inner side of every edge
+	 */
+	@Override
+	public boolean containsPoint(float x, float y) {
+		if(!bounds.intersects(x, y, 0, 0)) return false;
+
+		for(int i=0, j=xs.length-1; i<xs.length; j=i++) {
+			float cross = (xs[i] - xs[j]) * (y - ys[j]) - (ys[i] - ys[j]) * (x - xs[j]);
+			if(cross <= 0) return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Separating axis test, axes are the rectangle sides and the polygon edge normals.
+	 */
+	@Override
+	public boolean intersectsRect(float x, float y, float w, float h) {
+		if(!bounds.intersects(x, y, w, h)) return false;
+
+		for(int i=0, j=xs.length-1; i<xs.length; j=i++) {
+			float ex = xs[i] - xs[j], ey = ys[i] - ys[j];
+
+			// Rectangle is separated if all its corners are on the outer side of the edge
+			if(outside(ex, ey, xs[j], ys[j], x, y)
+					&& outside(ex, ey, xs[j], ys[j], x + w, y)
+					&& outside(ex, ey, xs[j], ys[j], x, y + h)
+					&& outside(ex, ey, xs[j], ys[j], x + w, y + h)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static boolean outside(float ex, float ey, float ox, float oy, float px, float py) {
+		return ex * (py - oy) - ey * (px - ox) < 0;
+	}
+
+	@Override
+	public String toString() {
+		return "ConvexPolygon[xs:" + Arrays.toString(xs) + ", ys:" + Arrays.toString(ys) + "]";
+	}
+}
@@ -2,7 +2,7 @@ package com.programmer.igoodie.utils.structures.shapes;
 
 import com.programmer.igoodie.utils.structures.Entity;
 
-public class Rectangle {
+public class Rectangle implements Shape {
 
 	public float x, y;
 	public float w, h;
@@ -31,6 +31,16 @@ public class Rectangle {
 		return containsPoint(entity.position.x, entity.position.y);
 	}
 
+	@Override
+	public Rectangle bounds() {
+		return this;
+	}
+
+	@Override
+	public boolean intersectsRect(float x, float y, float w, float h) {
+		return intersects(x, y, w, h);
+	}
+
 	public boolean intersects(float x, float y, float w, float h) {
 		return (this.x + this.w >= x) && (x + w >= this.x)
 				&& (this.y + this.h >= y) && (y + h >= this.y);
@@ -0,0 +1,28 @@
+package com.programmer.igoodie.utils.structures.shapes;
+
+import com.programmer.igoodie.utils.structures.Entity;
+
+/**
+ * Query region of spatial indices. Indices reject quads against {@link #bounds()} first,
+ * then use {@link #intersectsRect(float, float, float, float)} to decide whether to open
+ * them and {@link #containsPoint(float, float)} as the exact test on their entities.
+ */
+public interface Shape {
+
+	/**
+	 * @return Axis aligned bounding box of the shape, callers must not modify it
+	 */
+	Rectangle bounds();
+
+	boolean containsPoint(float x, float y);
+
+	/**
+	 * May report an intersection that isn't there, but must never miss one.
+	 */
+	boolean intersectsRect(float x, float y, float w, float h);
+
+	default boolean containsPoint(Entity entity) {
+		return containsPoint(entity.position.x, entity.position.y);
+	}
+
+}
@@ -0,0 +1,58 @@
+package com.programmer.igoodie.utils.structures.shapes;
+
+import com.programmer.igoodie.utils.math.MathUtils;
+import com.programmer.igoodie.utils.structures.Entity;
+
+public class Sphere {
+
+	public float x, y, z;
+	public float radius;
+	
+	public Sphere(float x, float y, float z) {
+		this.x = x;
+		this.y = y;
+		this.z = z;
+	}
+	
+	public Sphere(float x, float y, float z, float radius) {
+		this.x = x;
+		this.y = y;
+		this.z = z;
+		this.radius = radius;
+	}
+	
+	public boolean containsPoint(float x, float y, float z) {
+		float dx = this.x - x;
+		float dy = this.y - y;
+		float dz = this.z - z;
+		return (dx*dx + dy*dy + dz*dz) < this.radius * this.radius;
+	}
+	
+	public boolean containsPoint(Entity entity) {
+		return containsPoint(entity.position.x, entity.position.y, entity.position.z);
+	}
+	
+	public boolean intersects(float x, float y, float z, float w, float h, float d) {
+		float dx = this.x - MathUtils.clamp(this.x, x, x+w);
+		float dy = this.y - MathUtils.clamp(this.y, y, y+h);
+		float dz = this.z - MathUtils.clamp(this.z, z, z+d);
+		return (dx*dx + dy*dy + dz*dz) < this.radius * this.radius;
+	}
+	
+	public boolean intersects(Box box) {
+		return intersects(box.x, box.y, box.z, box.w, box.h, box.d);
+	}
+	
+	public boolean intersects(float x, float y, float z, float radius) {
+		float dx = this.x - x;
+		float dy = this.y - y;
+		float dz = this.z - z;
+		float dr = this.radius + radius;
+		
+		return dx*dx + dy*dy + dz*dz <= dr*dr;
+	}
+	
+	public boolean intersects(Sphere s) {
+		return intersects(s.x, s.y, s.z, s.radius);
+	}
+}
@@ -0,0 +1,164 @@
+package com.programmer.igoodie.utils.structures.spatial;
+
+import com.programmer.igoodie.utils.structures.IntList;
+import com.programmer.igoodie.utils.structures.shapes.Circle;
+import com.programmer.igoodie.utils.structures.shapes.Rectangle;
+
+/**
+ * Queries shared by {@link LinearQuadTree} and {@link MappedLinearQuadTree}.
+ * Subclasses only tell where the i-th point of the key order is stored.
+ */
+abstract class AbstractLinearQuadTree {
+
+	private static final int LEVELS = LinearQuadTree.LEVELS;
+
+	// Quads holding at most this many points are scanned instead of descended
+	private static final int SCAN_THRESHOLD = 32;
+
+	protected final float x, y, w, h;
+
+	AbstractLinearQuadTree(float x, float y, float w, float h) {
+		this.x = x;
+		this.y = y;
+		this.w = w;
+		this.h = h;
+	}
+
+	/* Point accessors, in ascending key order */
+	abstract long keyAt(int index);
+
+	abstract float xAt(int index);
+
+	abstract float yAt(int index);
+
+	abstract int idAt(int index);
+
+	public abstract int size();
+
+	/* Queries */
+	public IntList query(Rectangle range) {
+		return query(range.x, range.y, range.w, range.h, new IntList());
+	}
+
+	public IntList query(Rectangle range, IntList result) {
+		return query(range.x, range.y, range.w, range.h, result);
+	}
+
+	/**
+	 * Appends ids of the points strictly inside given rectangle to the result.
+	 * @return Given result list
+	 */
+	public IntList query(float qx, float qy, float qw, float qh, IntList result) {
+		if(size() == 0 || qx > x + w || qx + qw < x || qy > y + h || qy + qh < y) {
+			return result;
+		}
+		queryRect(0, 0, 0, 0, qx, qy, qx + qw, qy + qh, result);
+		return result;
+	}
+
+	public IntList query(Circle range) {
+		return query(range.x, range.y, range.radius, new IntList());
+	}
+
+	public IntList query(Circle range, IntList result) {
+		return query(range.x, range.y, range.radius, result);
+	}
+
+	/**
+	 * Appends ids of the points strictly inside given circle to the result.
+	 * @return Given result list
+	 */
+	public IntList query(float cx, float cy, float radius, IntList result) {
+		if(size() == 0) return result;
+		queryCircle(0, 0, 0, 0, cx, cy, radius * radius, result);
+		return result;
+	}
+
+	private void queryRect(int level, int cellX, int cellY, long prefix,
+			float minX, float minY, float maxX, float maxY, IntList result) {
+		float cellW = w / (1 << level), cellH = h / (1 << level);
+		float x0 = x + cellX * cellW, y0 = y + cellY * cellH;
+
+		// Quad doesn't intersect the range
+		if(x0 > maxX || x0 + cellW < minX || y0 > maxY || y0 + cellH < minY) {
+			return;
+		}
+
+		long first = prefix << (2 * (LEVELS - level));
+		long last = first + (1L << (2 * (LEVELS - level)));
+		int from = lowerBound(first), to = lowerBound(last);
+		if(from == to) return;
+
+		boolean inside = minX < x0 && x0 + cellW < maxX && minY < y0 && y0 + cellH < maxY;
+		if(inside || level == LEVELS || to - from <= SCAN_THRESHOLD) {
+			for(int i=from; i<to; i++) {
+				float px = xAt(i), py = yAt(i);
+				if(minX < px && px < maxX && minY < py && py < maxY) {
+					result.add(idAt(i));
+				}
+			}
+			return;
+		}
+
+		for(int child=0; child<4; child++) {
+			queryRect(level + 1, cellX * 2 + (child & 1), cellY * 2 + (child >> 1), prefix << 2 | child,
+					minX, minY, maxX, maxY, result);
+		}
+	}
+
+	private void queryCircle(int level, int cellX, int cellY, long prefix,
+			float cx, float cy, float radiusSq, IntList result) {
+		float cellW = w / (1 << level), cellH = h / (1 << level);
+		float x0 = x + cellX * cellW, y0 = y + cellY * cellH;
+
+		// Quad doesn't intersect the range
+		float dx = cx - Math.max(x0, Math.min(cx, x0 + cellW));
+		float dy = cy - Math.max(y0, Math.min(cy, y0 + cellH));
+		if(dx*dx + dy*dy >= radiusSq) {
+			return;
+		}
+
+		long first = prefix << (2 * (LEVELS - level));
+		long last = first + (1L << (2 * (LEVELS - level)));
+		int from = lowerBound(first), to = lowerBound(last);
+		if(from == to) return;
+
+		// Farthest corner of the quad is in the circle
+		float fx = Math.max(Math.abs(cx - x0), Math.abs(cx - x0 - cellW));
+		float fy = Math.max(Math.abs(cy - y0), Math.abs(cy - y0 - cellH));
+		boolean inside = fx*fx + fy*fy < radiusSq;
+
+		if(inside || level == LEVELS || to - from <= SCAN_THRESHOLD) {
+			for(int i=from; i<to; i++) {
+				float px = cx - xAt(i), py = cy - yAt(i);
+				if(px*px + py*py < radiusSq) {
+					result.add(idAt(i));
+				}
+			}
+			return;
+		}
+
+		for(int child=0; child<4; child++) {
+			queryCircle(level + 1, cellX * 2 + (child & 1), cellY * 2 + (child >> 1), prefix << 2 | child,
+					cx, cy, radiusSq, result);
+		}
+	}
+
+	/**
+	 * @return Index of the first key that is not less than given key
+	 */
+	private int lowerBound(long key) {
+		int lo = 0, hi = size();
+		while(lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if(keyAt(mid) < key) lo = mid + 1;
+			else hi = mid;
+		}
+		return lo;
+	}
+
+	public Rectangle getBoundary() {
+		return new Rectangle(x, y, w, h);
+	}
+
+}
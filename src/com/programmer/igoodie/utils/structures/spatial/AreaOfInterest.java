@@ -0,0 +1,262 @@
+package com.programmer.igoodie.utils.structures.spatial;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+
+import com.programmer.igoodie.utils.structures.Entity;
+import com.programmer.igoodie.utils.structures.shapes.Rectangle;
+
+/**
+ * Area of interest manager on top of a {@link GridMap}.
+ * <br/>
+ * An observer is interested in every entity within <b>range</b> tiles of its own tile,
+ * a (2 * range + 1)^2 window of tiles. Every tile keeps the observers watching it, so
+ * when an entity crosses a tile border only the watchers of the old and the new tile are
+ * visited, and when an observer crosses one only the tiles sliding in and out of its
+ * window are. Nothing is re-queried per tick, events are emitted as things move.
+ * <br/>
+ * Observers are entities of the map themselves, e.g. player avatars. An observer never
+ * receives events about itself.
+ */
+public class AreaOfInterest<T extends Entity> {
+
+	public interface Listener<T> {
+		void onEnter(T observer, T entity);
+		void onLeave(T observer, T entity);
+
+		/**
+		 * Entity moved while staying in the area of the observer.
+		 */
+		default void onMove(T observer, T entity) {}
+	}
+
+	private static class Observer<T> {
+		final T entity;
+		final int range;
+		int tileX, tileY;
+
+		Observer(T entity, int range) {
+			this.entity = entity;
+			this.range = range;
+		}
+
+		boolean watches(int i, int j) {
+			return Math.abs(i - tileX) <= range && Math.abs(j - tileY) <= range;
+		}
+	}
+
+	private final GridMap<T> grid;
+	private final Listener<? super T> listener;
+
+	private final ArrayList<Observer<T>>[][] watchers;
+	private final IdentityHashMap<T, Observer<T>> observers = new IdentityHashMap<>();
+
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	public AreaOfInterest(Rectangle boundaries, int row, int col, Listener<? super T> listener) {
+		this.grid = new GridMap<>(boundaries, row, col);
+		this.listener = listener;
+		this.watchers = new ArrayList[row][col];
+
+		for(int i=0; i<row; i++) {
+			for(int j=0; j<col; j++) {
+				watchers[i][j] = new ArrayList<>();
+			}
+		}
+	}
+
+	/**
+	 * @return Underlying grid, to be queried but not modified directly
+	 */
+	public GridMap<T> getGrid() {
+		return grid;
+	}
+
+	/* Entities */
+	public boolean add(T entity) {
+		if(!grid.insert(entity)) {
+			return false;
+		}
+
+		int i = grid.tileX(entity.position.x), j = grid.tileY(entity.position.y);
+		for(Observer<T> observer : watchers[i][j]) {
+			listener.onEnter(observer.entity, entity);
+		}
+		return true;
+	}
+
+	/**
+	 * Removes given entity, dropping it as an observer as well.
+	 */
+	public boolean remove(T entity) {
+		int i = grid.tileX(entity.position.x), j = grid.tileY(entity.position.y);
+		if(!grid.remove(entity)) {
+			return false;
+		}
+
+		removeObserver(entity);
+
+		for(Observer<T> observer : watchers[i][j]) {
+			listener.onLeave(observer.entity, entity);
+		}
+		return true;
+	}
+
+	/**
+	 * Moves given entity and emits events to the observers it entered, left or moved within.
+	 * If the entity is an observer, its window follows it.
+	 * @return False if the new position is out of the boundaries or the entity cannot be found
+	 */
+	public boolean move(T entity, float x, float y) {
+		int oldI = grid.tileX(entity.position.x), oldJ = grid.tileY(entity.position.y);
+
+		if(!grid.move(entity, x, y)) {
+			return false;
+		}
+
+		int newI = grid.tileX(x), newJ = grid.tileY(y);
+
+		Observer<T> self = observers.get(entity);
+		if(self != null && (oldI != newI || oldJ != newJ)) {
+			shiftWindow(self, newI, newJ);
+		}
+
+		if(oldI == newI && oldJ == newJ) {
+			for(Observer<T> observer : watchers[newI][newJ]) {
+				if(observer != self) listener.onMove(observer.entity, entity);
+			}
+			return true;
+		}
+
+		for(Observer<T> observer : watchers[oldI][oldJ]) {
+			if(observer == self) continue;
+			if(observer.watches(newI, newJ)) listener.onMove(observer.entity, entity);
+			else listener.onLeave(observer.entity, entity);
+		}
+
+		for(Observer<T> observer : watchers[newI][newJ]) {
+			if(observer == self) continue;
+			if(!observer.watches(oldI, oldJ)) listener.onEnter(observer.entity, entity);
+		}
+
+		return true;
+	}
+
+	/* Observers */
+	/**
+	 * Makes an entity of the map an observer. It receives enter events
+	 * for every entity already in its window.
+	 * @param range Radius of the window in tiles, 0 watches only its own tile
+	 * @return False if the entity isn't in the map or already observes
+	 */
+	public boolean addObserver(T entity, int range) {
+		if(observers.containsKey(entity) || !isInGrid(entity)) {
+			return false;
+		}
+
+		Observer<T> observer = new Observer<>(entity, range);
+		observer.tileX = grid.tileX(entity.position.x);
+		observer.tileY = grid.tileY(entity.position.y);
+		observers.put(entity, observer);
+
+		forEachTile(observer.tileX, observer.tileY, range, (i, j) -> watch(observer, i, j));
+		return true;
+	}
+
+	/**
+	 * Stops observing. Observer receives leave events for every entity in its window.
+	 */
+	public boolean removeObserver(T entity) {
+		Observer<T> observer = observers.remove(entity);
+		if(observer == null) {
+			return false;
+		}
+
+		forEachTile(observer.tileX, observer.tileY, observer.range, (i, j) -> unwatch(observer, i, j));
+		return true;
+	}
+
+	public boolean isObserver(T entity) {
+		return observers.containsKey(entity);
+	}
+
+	public int observerCount() {
+		return observers.size();
+	}
+
+	private boolean isInGrid(T entity) {
+		if(!grid.contains(entity.position.x, entity.position.y)) {
+			return false;
+		}
+
+		ArrayList<T> entities = grid.grids[grid.tileX(entity.position.x)][grid.tileY(entity.position.y)].entities;
+		for(int k=0, size=entities.size(); k<size; k++) {
+			if(entities.get(k) == entity) return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Moves the window of the observer, visiting only the tiles that slide in or out.
+	 */
+	private void shiftWindow(Observer<T> observer, int newI, int newJ) {
+		int oldI = observer.tileX, oldJ = observer.tileY;
+		int range = observer.range;
+
+		// Tiles of the old window that are not in the new one
+		forEachTile(oldI, oldJ, range, (i, j) -> {
+			if(Math.abs(i - newI) > range || Math.abs(j - newJ) > range) unwatch(observer, i, j);
+		});
+
+		// Tiles of the new window that were not in the old one
+		forEachTile(newI, newJ, range, (i, j) -> {
+			if(Math.abs(i - oldI) > range || Math.abs(j - oldJ) > range) watch(observer, i, j);
+		});
+
+		observer.tileX = newI;
+		observer.tileY = newJ;
+	}
+
+	private void watch(Observer<T> observer, int i, int j) {
+		watchers[i][j].add(observer);
+
+		ArrayList<T> entities = grid.grids[i][j].entities;
+		for(int k=0, size=entities.size(); k<size; k++) {
+			T entity = entities.get(k);
+			if(entity != observer.entity) listener.onEnter(observer.entity, entity);
+		}
+	}
+
+	private void unwatch(Observer<T> observer, int i, int j) {
+		ArrayList<Observer<T>> list = watchers[i][j];
+		int last = list.size() - 1;
+		for(int k=0; k<=last; k++) {
+			if(list.get(k) == observer) {
+				list.set(k, list.get(last));
+				list.remove(last);
+				break;
+			}
+		}
+
+		ArrayList<T> entities = grid.grids[i][j].entities;
+		for(int k=0, size=entities.size(); k<size; k++) {
+			T entity = entities.get(k);
+			if(entity != observer.entity) listener.onLeave(observer.entity, entity);
+		}
+	}
+
+	private interface TileVisitor {
+		void visit(int i, int j);
+	}
+
+	private void forEachTile(int centerI, int centerJ, int range, TileVisitor visitor) {
+		int minI = Math.max(0, centerI - range), maxI = Math.min(grid.row - 1, centerI + range);
+		int minJ = Math.max(0, centerJ - range), maxJ = Math.min(grid.col - 1, centerJ + range);
+
+		for(int i=minI; i<=maxI; i++) {
+			for(int j=minJ; j<=maxJ; j++) {
+				visitor.visit(i, j);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,39 @@
+package com.programmer.igoodie.utils.structures.spatial;
+
+import java.util.function.Consumer;
+
+/**
+ * Results of a batch of queries in compressed sparse row form. Hits of query <b>q</b>
+ * are <code>hits[offsets[q]]</code> up to (excluding) <code>hits[offsets[q + 1]]</code>.
+ * Both arrays may be longer than needed, as they are reused between batches.
+ */
+public class BatchResult<T> {
+
+	public int queryCount;
+	public int[] offsets = new int[1];
+	public Object[] hits = new Object[0];
+
+	// Pair buffer of the last batch, reused by the next one
+	QuadTreeBatchQuery.Hits pairs;
+
+	public int count(int query) {
+		return offsets[query + 1] - offsets[query];
+	}
+
+	@SuppressWarnings("unchecked")
+	public T get(int query, int index) {
+		return (T) hits[offsets[query] + index];
+	}
+
+	@SuppressWarnings("unchecked")
+	public void forEach(int query, Consumer<? super T> visitor) {
+		for(int i=offsets[query], end=offsets[query + 1]; i<end; i++) {
+			visitor.accept((T) hits[i]);
+		}
+	}
+
+	public int totalHits() {
+		return offsets[queryCount];
+	}
+
+}
@@ -0,0 +1,478 @@
+package com.programmer.igoodie.utils.structures.spatial;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.function.Consumer;
+
+import com.programmer.igoodie.utils.math.MathUtils;
+import com.programmer.igoodie.utils.math.Vectorf;
+import com.programmer.igoodie.utils.structures.Entity;
+import com.programmer.igoodie.utils.structures.shapes.Circle;
+import com.programmer.igoodie.utils.structures.shapes.Rectangle;
+
+/**
+ * Quad tree that can be queried from many threads while one thread modifies it.
+ * <br/>
+ * Published nodes are never modified. A write copies the nodes on the path it changes
+ * and publishes the new root through a volatile field, so readers always traverse a
+ * consistent version without taking any lock. Nodes created by a write are modified in
+ * place until they are published, which keeps batched writes such as
+ * {@link #insertAll(Collection)} from copying the same path over and over.
+ * <br/>
+ * Writes are synchronized with each other, reads never block.
+ * Entity positions are not copied. An entity should be moved through
+ * {@link #update(Entity, Vectorf)} so readers see it in the right quad.
+ */
+public class ConcurrentQuadTree<T extends Entity> {
+
+	public static final int STD_CAPACITY = QuadTree.STD_CAPACITY;
+	public static final int STD_MAX_DEPTH = QuadTree.STD_MAX_DEPTH;
+	public static final float STD_MIN_SIZE = QuadTree.STD_MIN_SIZE;
+
+	private static final Object[] EMPTY = new Object[0];
+
+	static final class Node {
+		final float x, y, w, h;
+		final int depth;
+		final long batch;
+
+		Object[] entities = EMPTY;
+		int size;
+		Node northwest, northeast;
+		Node southwest, southeast;
+
+		Node(float x, float y, float w, float h, int depth, long batch) {
+			this.x = x;
+			this.y = y;
+			this.w = w;
+			this.h = h;
+			this.depth = depth;
+			this.batch = batch;
+		}
+
+		Node copy(long batch) {
+			Node copy = new Node(x, y, w, h, depth, batch);
+			copy.entities = size == 0 ? EMPTY : Arrays.copyOf(entities, Math.max(size, 4));
+			copy.size = size;
+			copy.northwest = northwest;
+			copy.northeast = northeast;
+			copy.southwest = southwest;
+			copy.southeast = southeast;
+			return copy;
+		}
+
+		boolean containsPoint(float px, float py) {
+			return x < px && px < x + w && y < py && py < y + h;
+		}
+
+		boolean isDivided() {
+			return northwest != null;
+		}
+	}
+
+	/**
+	 * A consistent, read-only version of the tree.
+	 * Stays valid and unchanged regardless of later writes.
+	 */
+	public static final class Snapshot<T extends Entity> {
+		private final Node root;
+		private final long version;
+
+		Snapshot(Node root, long version) {
+			this.root = root;
+			this.version = version;
+		}
+
+		public long version() {
+			return version;
+		}
+
+		public void query(Rectangle range, Consumer<? super T> visitor) {
+			ConcurrentQuadTree.query(root, range.x, range.y, range.x + range.w, range.y + range.h, visitor);
+		}
+
+		public ArrayList<T> query(Rectangle range) {
+			ArrayList<T> result = new ArrayList<>();
+			query(range, result::add);
+			return result;
+		}
+
+		public void query(Circle range, Consumer<? super T> visitor) {
+			ConcurrentQuadTree.query(root, range.x, range.y, range.radius * range.radius, visitor);
+		}
+
+		public ArrayList<T> query(Circle range) {
+			ArrayList<T> result = new ArrayList<>();
+			query(range, result::add);
+			return result;
+		}
+
+		public void query(float x, float y, float radius, Consumer<? super T> visitor) {
+			ConcurrentQuadTree.query(root, x, y, radius * radius, visitor);
+		}
+
+		public int countWithin(Rectangle range) {
+			return ConcurrentQuadTree.count(root, range.x, range.y, range.x + range.w, range.y + range.h);
+		}
+
+		public int countWithin(float x, float y, float radius) {
+			return ConcurrentQuadTree.count(root, x, y, radius * radius);
+		}
+
+		public int size() {
+			return ConcurrentQuadTree.size(root);
+		}
+	}
+
+	// Split policy, same meaning as QuadTree's
+	public final int capacity, maxDepth;
+	public final float minSize;
+
+	private volatile Snapshot<T> current;
+
+	// Accessed only by the writer, under the lock
+	private long batch;
+
+	public ConcurrentQuadTree(float x, float y, float w, float h) {
+		this(x, y, w, h, STD_CAPACITY, STD_MAX_DEPTH, STD_MIN_SIZE);
+	}
+
+	/**
+	 * @param capacity Entities a quad holds before it is divided
+	 * @param maxDepth Quads at this depth are never divided, root is at depth 0
+	 * @param minSize Quads are not divided if their sub quads would be narrower than this
+	 */
+	public ConcurrentQuadTree(float x, float y, float w, float h, int capacity, int maxDepth, float minSize) {
+		if(capacity < 1) {
+			throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+		}
+		if(maxDepth < 0) {
+			throw new IllegalArgumentException("Max depth cannot be negative: " + maxDepth);
+		}
+
+		this.capacity = capacity;
+		this.maxDepth = maxDepth;
+		this.minSize = minSize;
+
+		current = new Snapshot<>(new Node(x, y, w, h, 0, batch), 0);
+		batch++;
+	}
+
+	/* Reads */
+	public Snapshot<T> snapshot() {
+		return current;
+	}
+
+	public long version() {
+		return current.version;
+	}
+
+	public void query(Rectangle range, Consumer<? super T> visitor) {
+		current.query(range, visitor);
+	}
+
+	public ArrayList<T> query(Rectangle range) {
+		return current.query(range);
+	}
+
+	public void query(Circle range, Consumer<? super T> visitor) {
+		current.query(range, visitor);
+	}
+
+	public ArrayList<T> query(Circle range) {
+		return current.query(range);
+	}
+
+	public void query(float x, float y, float radius, Consumer<? super T> visitor) {
+		current.query(x, y, radius, visitor);
+	}
+
+	public int countWithin(Rectangle range) {
+		return current.countWithin(range);
+	}
+
+	public int countWithin(float x, float y, float radius) {
+		return current.countWithin(x, y, radius);
+	}
+
+	/* Writes */
+	public synchronized boolean insert(T entity) {
+		Node root = insert(current.root, entity);
+		if(root == null) return false;
+		publish(root);
+		return true;
+	}
+
+	/**
+	 * Inserts all given entities and publishes them as a single version.
+	 * @return True if every entity was inserted
+	 */
+	public synchronized boolean insertAll(Collection<? extends T> entities) {
+		Node root = current.root;
+		boolean result = true;
+
+		for(T entity : entities) {
+			Node inserted = insert(root, entity);
+			if(inserted == null) result = false;
+			else root = inserted;
+		}
+
+		publish(root);
+		return result;
+	}
+
+	public synchronized boolean remove(T entity) {
+		Node root = remove(current.root, entity, entity.position.x, entity.position.y);
+		if(root == null) return false;
+		publish(root);
+		return true;
+	}
+
+	/**
+	 * Re-indexes given entity after its position was changed.
+	 * Readers see either the old or the new placement, never both or neither.
+	 * @param entity Entity whose position was already updated
+	 * @param oldPosition Position of the entity when it was inserted or last updated
+	 * @return False if the entity couldn't be found or the new position is out of the tree
+	 */
+	public synchronized boolean update(T entity, Vectorf oldPosition) {
+		Node root = remove(current.root, entity, oldPosition.x, oldPosition.y);
+		if(root == null) return false;
+
+		Node inserted = insert(root, entity);
+		publish(inserted == null ? root : inserted);
+		return inserted != null;
+	}
+
+	public synchronized void reset() {
+		Node root = current.root;
+		publish(new Node(root.x, root.y, root.w, root.h, 0, batch));
+	}
+
+	private void publish(Node root) {
+		current = new Snapshot<>(root, current.version + 1);
+		batch++; // Nodes written so far are visible to readers now, never modify them again
+	}
+
+	private Node writable(Node node) {
+		return node.batch == batch ? node : node.copy(batch);
+	}
+
+	/**
+	 * @return Root of the modified path, or null if entity doesn't belong to this node
+	 */
+	private Node insert(Node node, T entity) {
+		float px = entity.position.x, py = entity.position.y;
+
+		if(!node.containsPoint(px, py)) { // Entity doesn't belong to this quad
+			return null;
+		}
+
+		// If there is enough room or the quad cannot be divided, append
+		if(node.size < capacity || (!node.isDivided() && !canSplit(node))) {
+			return append(writable(node), entity);
+		}
+
+		Node copy = writable(node);
+
+		// Divide if not divided and insert sub quads
+		if(!copy.isDivided()) {
+			float halfW = copy.w / 2f;
+			float halfH = copy.h / 2f;
+			int depth = copy.depth + 1;
+			copy.northwest = new Node(copy.x, copy.y, halfW, halfH, depth, batch);
+			copy.northeast = new Node(copy.x + halfW, copy.y, halfW, halfH, depth, batch);
+			copy.southwest = new Node(copy.x, copy.y + halfH, halfW, halfH, depth, batch);
+			copy.southeast = new Node(copy.x + halfW, copy.y + halfH, halfW, halfH, depth, batch);
+		}
+
+		Node child;
+		if((child = insert(copy.northwest, entity)) != null) { copy.northwest = child; return copy; }
+		if((child = insert(copy.northeast, entity)) != null) { copy.northeast = child; return copy; }
+		if((child = insert(copy.southwest, entity)) != null) { copy.southwest = child; return copy; }
+		if((child = insert(copy.southeast, entity)) != null) { copy.southeast = child; return copy; }
+
+		// Lays exactly on a sub quad border, no sub quad contains it
+		return append(copy, entity);
+	}
+
+	private boolean canSplit(Node node) {
+		return node.depth < maxDepth && node.w / 2f >= minSize && node.h / 2f >= minSize;
+	}
+
+	private static Node append(Node node, Object entity) {
+		if(node.size == node.entities.length) {
+			node.entities = Arrays.copyOf(node.entities, Math.max(4, node.size * 2));
+		}
+		node.entities[node.size++] = entity;
+		return node;
+	}
+
+	/**
+	 * @return Root of the modified path, or null if entity cannot be found under this node
+	 */
+	private Node remove(Node node, T entity, float x, float y) {
+		if(!node.containsPoint(x, y)) { // Entity cannot be in this quad
+			return null;
+		}
+
+		for(int i=0; i<node.size; i++) {
+			if(node.entities[i] == entity) {
+				Node copy = writable(node);
+				System.arraycopy(copy.entities, i + 1, copy.entities, i, copy.size - i - 1);
+				copy.entities[--copy.size] = null;
+				return copy;
+			}
+		}
+
+		if(!node.isDivided()) {
+			return null;
+		}
+
+		Node copy, child;
+		if((child = remove(node.northwest, entity, x, y)) != null) { copy = writable(node); copy.northwest = child; }
+		else if((child = remove(node.northeast, entity, x, y)) != null) { copy = writable(node); copy.northeast = child; }
+		else if((child = remove(node.southwest, entity, x, y)) != null) { copy = writable(node); copy.southwest = child; }
+		else if((child = remove(node.southeast, entity, x, y)) != null) { copy = writable(node); copy.southeast = child; }
+		else return null;
+
+		tryMerge(copy);
+		return copy;
+	}
+
+	private void tryMerge(Node node) {
+		if(node.northwest.isDivided() || node.northeast.isDivided()
+				|| node.southwest.isDivided() || node.southeast.isDivided()) {
+			return;
+		}
+
+		int total = node.size + node.northwest.size + node.northeast.size
+				+ node.southwest.size + node.southeast.size;
+
+		if(total > capacity) {
+			return;
+		}
+
+		Object[] merged = Arrays.copyOf(node.entities, Math.max(total, 4));
+		int size = node.size;
+		for(Node child : new Node[] {node.northwest, node.northeast, node.southwest, node.southeast}) {
+			System.arraycopy(child.entities, 0, merged, size, child.size);
+			size += child.size;
+		}
+
+		node.entities = merged;
+		node.size = size;
+		node.northwest = node.northeast = null;
+		node.southwest = node.southeast = null;
+	}
+
+	/* Traversal, recursive so that concurrent readers share no state */
+	@SuppressWarnings("unchecked")
+	private static <T> void query(Node node, float minX, float minY, float maxX, float maxY, Consumer<? super T> visitor) {
+		// If boundaries doesn't intersect
+		if(node.x > maxX || node.x + node.w < minX || node.y > maxY || node.y + node.h < minY) {
+			return;
+		}
+
+		Object[] entities = node.entities;
+		for(int i=0, size=node.size; i<size; i++) {
+			Entity entity = (Entity) entities[i];
+			float ex = entity.position.x, ey = entity.position.y;
+			if(minX < ex && ex < maxX && minY < ey && ey < maxY) {
+				visitor.accept((T) entity);
+			}
+		}
+
+		if(node.isDivided()) {
+			query(node.northwest, minX, minY, maxX, maxY, visitor);
+			query(node.northeast, minX, minY, maxX, maxY, visitor);
+			query(node.southwest, minX, minY, maxX, maxY, visitor);
+			query(node.southeast, minX, minY, maxX, maxY, visitor);
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T> void query(Node node, float x, float y, float radiusSq, Consumer<? super T> visitor) {
+		// If boundaries doesn't intersect
+		float dx = x - MathUtils.clamp(x, node.x, node.x + node.w);
+		float dy = y - MathUtils.clamp(y, node.y, node.y + node.h);
+		if(dx*dx + dy*dy >= radiusSq) {
+			return;
+		}
+
+		Object[] entities = node.entities;
+		for(int i=0, size=node.size; i<size; i++) {
+			Entity entity = (Entity) entities[i];
+			float ex = x - entity.position.x, ey = y - entity.position.y;
+			if(ex*ex + ey*ey < radiusSq) {
+				visitor.accept((T) entity);
+			}
+		}
+
+		if(node.isDivided()) {
+			query(node.northwest, x, y, radiusSq, visitor);
+			query(node.northeast, x, y, radiusSq, visitor);
+			query(node.southwest, x, y, radiusSq, visitor);
+			query(node.southeast, x, y, radiusSq, visitor);
+		}
+	}
+
+	private static int count(Node node, float minX, float minY, float maxX, float maxY) {
+		if(node.x > maxX || node.x + node.w < minX || node.y > maxY || node.y + node.h < minY) {
+			return 0;
+		}
+
+		int count = 0;
+		Object[] entities = node.entities;
+		for(int i=0, size=node.size; i<size; i++) {
+			Entity entity = (Entity) entities[i];
+			float ex = entity.position.x, ey = entity.position.y;
+			if(minX < ex && ex < maxX && minY < ey && ey < maxY) count++;
+		}
+
+		if(node.isDivided()) {
+			count += count(node.northwest, minX, minY, maxX, maxY);
+			count += count(node.northeast, minX, minY, maxX, maxY);
+			count += count(node.southwest, minX, minY, maxX, maxY);
+			count += count(node.southeast, minX, minY, maxX, maxY);
+		}
+
+		return count;
+	}
+
+	private static int count(Node node, float x, float y, float radiusSq) {
+		float dx = x - MathUtils.clamp(x, node.x, node.x + node.w);
+		float dy = y - MathUtils.clamp(y, node.y, node.y + node.h);
+		if(dx*dx + dy*dy >= radiusSq) {
+			return 0;
+		}
+
+		int count = 0;
+		Object[] entities = node.entities;
+		for(int i=0, size=node.size; i<size; i++) {
+			Entity entity = (Entity) entities[i];
+			float ex = x - entity.position.x, ey = y - entity.position.y;
+			if(ex*ex + ey*ey < radiusSq) count++;
+		}
+
+		if(node.isDivided()) {
+			count += count(node.northwest, x, y, radiusSq);
+			count += count(node.northeast, x, y, radiusSq);
+			count += count(node.southwest, x, y, radiusSq);
+			count += count(node.southeast, x, y, radiusSq);
+		}
+
+		return count;
+	}
+
+	private static int size(Node node) {
+		int size = node.size;
+		if(node.isDivided()) {
+			size += size(node.northwest) + size(node.northeast)
+					+ size(node.southwest) + size(node.southeast);
+		}
+		return size;
+	}
+
+}
@@ -0,0 +1,141 @@
+package com.programmer.igoodie.utils.structures.spatial;
+
+import java.util.Arrays;
+
+/**
+ * Binary heap of values keyed by float distances, backed by parallel arrays.
+ * Used as the traversal frontier (min heap) and as the bounded result set
+ * (max heap) of nearest neighbour and ray queries. Can be cleared and reused.
+ */
+class DistanceHeap {
+
+	private final boolean maxHeap;
+	private float[] keys;
+	private Object[] values;
+	private int size;
+
+	DistanceHeap(boolean maxHeap) {
+		this.maxHeap = maxHeap;
+		this.keys = new float[32];
+		this.values = new Object[32];
+	}
+
+	int size() {
+		return size;
+	}
+
+	boolean isEmpty() {
+		return size == 0;
+	}
+
+	void clear() {
+		Arrays.fill(values, 0, size, null);
+		size = 0;
+	}
+
+	float peekKey() {
+		return keys[0];
+	}
+
+	Object peek() {
+		return values[0];
+	}
+
+	void push(float key, Object value) {
+		if(size == keys.length) {
+			keys = Arrays.copyOf(keys, size * 2);
+			values = Arrays.copyOf(values, size * 2);
+		}
+		keys[size] = key;
+		values[size] = value;
+		siftUp(size++);
+	}
+
+	Object poll() {
+		Object top = values[0];
+		size--;
+		keys[0] = keys[size];
+		values[0] = values[size];
+		values[size] = null;
+		if(size > 0) siftDown(0);
+		return top;
+	}
+
+	/**
+	 * Keeps only the <b>capacity</b> best entries. On a max heap that
+	 * means the entries with the smallest keys.
+	 */
+	void offer(float key, Object value, int capacity) {
+		if(size < capacity) {
+			push(key, value);
+		}
+		else if(before(keys[0], key)) {
+			keys[0] = key;
+			values[0] = value;
+			siftDown(0);
+		}
+	}
+
+	/**
+	 * Sorts the entries in place so that {@link #valueAt(int)} is in
+	 * ascending key order for a max heap. Heap order is lost afterwards,
+	 * it must be cleared before reusing.
+	 */
+	void sort() {
+		int n = size;
+		while(size > 1) {
+			float key = keys[0];
+			Object value = values[0];
+			size--;
+			keys[0] = keys[size];
+			values[0] = values[size];
+			keys[size] = key;
+			values[size] = value;
+			siftDown(0);
+		}
+		size = n;
+	}
+
+	float keyAt(int index) {
+		return keys[index];
+	}
+
+	Object valueAt(int index) {
+		return values[index];
+	}
+
+	private boolean before(float a, float b) {
+		return maxHeap ? a > b : a < b;
+	}
+
+	private void siftUp(int i) {
+		float key = keys[i];
+		Object value = values[i];
+		while(i > 0) {
+			int parent = (i - 1) >>> 1;
+			if(!before(key, keys[parent])) break;
+			keys[i] = keys[parent];
+			values[i] = values[parent];
+			i = parent;
+		}
+		keys[i] = key;
+		values[i] = value;
+	}
+
+	private void siftDown(int i) {
+		float key = keys[i];
+		Object value = values[i];
+		int half = size >>> 1;
+		while(i < half) {
+			int child = 2 * i + 1;
+			if(child + 1 < size && before(keys[child + 1], keys[child])) child++;
+			if(!before(keys[child], key)) break;
+			keys[i] = keys[child];
+			values[i] = values[child];
+			i = child;
+		}
+		keys[i] = key;
+		values[i] = value;
+	}
+
+}
@@ -1,26 +1,382 @@
 package com.programmer.igoodie.utils.structures.spatial;
 
 import java.util.ArrayList;
+import java.util.List;
 
+import com.programmer.igoodie.utils.math.Vectorf;
 import com.programmer.igoodie.utils.structures.Entity;
+import com.programmer.igoodie.utils.structures.shapes.Circle;
 import com.programmer.igoodie.utils.structures.shapes.Rectangle;
+import com.programmer.igoodie.utils.structures.shapes.Shape;
 
-public class GridMap {
-	
-	public static class GridTile {
-		ArrayList<Entity> entities = new ArrayList<>();
+/**
+ * Uniform grid (spatial hash) over a fixed rectangular area.
+ * Tile of a position is found with a single division, so insert,
+ * remove and move are O(1) apart from the scan of one tile's list.
+ * Entities are expected to be moved through {@link #move(Entity, float, float)}
+ * so the grid can keep track of their tiles.
+ */
+public class GridMap<T extends Entity> {
+
+	public static class GridTile<T extends Entity> {
+		ArrayList<T> entities = new ArrayList<>();
+
+		public ArrayList<T> getEntities() {
+			return entities;
+		}
+
+		boolean contains(T entity) {
+			for(int i=0, size=entities.size(); i<size; i++) {
+				if(entities.get(i) == entity) return true;
+			}
+			return false;
+		}
+
+		boolean remove(T entity) {
+			int last = entities.size() - 1;
+			for(int i=0; i<=last; i++) {
+				if(entities.get(i) == entity) {
+					// Order within a tile doesn't matter, swap with the last one
+					entities.set(i, entities.get(last));
+					entities.remove(last);
+					return true;
+				}
+			}
+			return false;
+		}
 	}
 
 	Rectangle boundaries;
-	GridTile[][] grids;
+	GridTile<T>[][] grids;
 	float gridWidth, gridHeight;
-	
+	int row, col;
+	int size;
+
+
+	@SuppressWarnings({"unchecked", "rawtypes"})
 	public GridMap(Rectangle boundaries, int row, int col) {
 		this.boundaries = boundaries;
+		this.row = row;
+		this.col = col;
 		gridWidth = this.boundaries.w / row;
 		gridHeight = this.boundaries.h / col;
 		grids = new GridTile[row][col];
+
+		for(int i=0; i<row; i++) {
+			for(int j=0; j<col; j++) {
+				grids[i][j] = new GridTile<>();
+			}
+		}
+	}
+
+	/* Tile Lookup */
+	public boolean contains(float x, float y) {
+		return boundaries.x <= x && x <= boundaries.x + boundaries.w
+				&& boundaries.y <= y && y <= boundaries.y + boundaries.h;
+	}
+
+	public int tileX(float x) {
+		int i = (int) ((x - boundaries.x) / gridWidth);
+		if(i < 0) return 0;
+		if(i >= row) return row - 1;
+		return i;
+	}
+
+	public int tileY(float y) {
+		int j = (int) ((y - boundaries.y) / gridHeight);
+		if(j < 0) return 0;
+		if(j >= col) return col - 1;
+		return j;
+	}
+
+	public GridTile<T> tileAt(float x, float y) {
+		return grids[tileX(x)][tileY(y)];
+	}
+
+	/* Insert, Remove & Move */
+	public boolean insert(T entity) {
+		if(!contains(entity.position.x, entity.position.y)) { // Entity doesn't belong to this map
+			return false;
+		}
+
+		tileAt(entity.position.x, entity.position.y).entities.add(entity);
+		size++;
+		return true;
+	}
+
+	public boolean insertAll(List<T> entities) {
+		boolean result = true;
+
+		for(T entity : entities) {
+			result &= insert(entity);
+		}
+
+		return result;
+	}
+
+	public boolean remove(T entity) {
+		if(!tileAt(entity.position.x, entity.position.y).remove(entity)) {
+			return false;
+		}
+
+		size--;
+		return true;
+	}
+
+	/**
+	 * Moves given entity to the new position, updating its position vector.
+	 * Tile lists are modified only if the entity crosses a tile border, otherwise
+	 * the tile is only scanned to make sure it holds the entity.
+	 * @param entity Entity that was inserted to this map
+	 * @param newX New x coordinate
+	 * @param newY New y coordinate
+	 * @return False if the new position is out of the boundaries
+	 * or the entity cannot be found, true otherwise
+	 */
+	public boolean move(T entity, float newX, float newY) {
+		if(!contains(newX, newY)) {
+			return false;
+		}
+
+		GridTile<T> oldTile = tileAt(entity.position.x, entity.position.y);
+		GridTile<T> newTile = tileAt(newX, newY);
+
+		if(oldTile != newTile) {
+			if(!oldTile.remove(entity)) return false;
+			newTile.entities.add(entity);
+		}
+		else if(!oldTile.contains(entity)) {
+			return false;
+		}
+
+		entity.position.set(newX, newY);
+		return true;
+	}
+
+	public void reset() {
+		for(int i=0; i<row; i++) {
+			for(int j=0; j<col; j++) {
+				grids[i][j].entities.clear();
+			}
+		}
+		size = 0;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	/* Queries */
+	public ArrayList<T> query(Rectangle range) {
+		ArrayList<T> result = new ArrayList<>();
+		query(range, result);
+		return result;
+	}
+
+	public void query(Rectangle range, List<? super T> result) {
+		query((Shape) range, result);
+	}
+
+	public ArrayList<T> query(Circle range) {
+		ArrayList<T> result = new ArrayList<>();
+		query(range, result);
+		return result;
 	}
-	
-	// TODO
+
+	public void query(Circle range, List<? super T> result) {
+		query((Shape) range, result);
+	}
+
+	public ArrayList<T> query(Shape range) {
+		ArrayList<T> result = new ArrayList<>();
+		query(range, result);
+		return result;
+	}
+
+	/**
+	 * Appends entities inside given shape. Only tiles under its bounds
+	 * that the shape intersects are scanned.
+	 */
+	public void query(Shape range, List<? super T> result) {
+		Rectangle bounds = range.bounds();
+		int minX = tileX(bounds.x), maxX = tileX(bounds.x + bounds.w);
+		int minY = tileY(bounds.y), maxY = tileY(bounds.y + bounds.h);
+
+		for(int i=minX; i<=maxX; i++) {
+			for(int j=minY; j<=maxY; j++) {
+				float tx = boundaries.x + i * gridWidth;
+				float ty = boundaries.y + j * gridHeight;
+
+				if(!range.intersectsRect(tx, ty, gridWidth, gridHeight)) {
+					continue;
+				}
+
+				ArrayList<T> entities = grids[i][j].entities;
+				for(int k=0, len=entities.size(); k<len; k++) {
+					T entity = entities.get(k);
+					if(range.containsPoint(entity.position.x, entity.position.y)) {
+						result.add(entity);
+					}
+				}
+			}
+		}
+	}
+
+	public ArrayList<T> query(T entity, float radius) {
+		Circle q = new Circle(entity.position.x, entity.position.y, radius);
+		return query(q);
+	}
+
+	/* Ray queries */
+	public ArrayList<T> raycast(Vectorf origin, Vectorf direction, float maxDist, float radius) {
+		ArrayList<T> result = new ArrayList<>();
+		raycast(origin.x, origin.y, direction.x, direction.y, maxDist, radius, result);
+		return result;
+	}
+
+	/**
+	 * Appends entities within <b>radius</b> (inclusive) of the ray to the result, nearest first.
+	 * Tiles are walked in the order the ray crosses them (DDA), scanning a band of
+	 * neighbouring tiles wide enough to cover the radius. Distance of a hit is its
+	 * projection onto the ray, same as {@link QuadTree#raycast(float, float, float, float, float, float, List)}.
+	 * @param dirX Direction of the ray, doesn't have to be normalized
+	 * @return Number of entities appended
+	 */
+	public int raycast(float ox, float oy, float dirX, float dirY, float maxDist, float radius, List<? super T> result) {
+		int size = result.size();
+		cast(ox, oy, dirX, dirY, maxDist, radius, result, Integer.MAX_VALUE);
+		return result.size() - size;
+	}
+
+	public T raycastFirst(Vectorf origin, Vectorf direction, float maxDist, float radius) {
+		return cast(origin.x, origin.y, direction.x, direction.y, maxDist, radius, null, 1);
+	}
+
+	public T raycastFirst(float ox, float oy, float dirX, float dirY, float maxDist, float radius) {
+		return cast(ox, oy, dirX, dirY, maxDist, radius, null, 1);
+	}
+
+	public ArrayList<T> segmentQuery(float x0, float y0, float x1, float y1, float radius) {
+		ArrayList<T> result = new ArrayList<>();
+		segmentQuery(x0, y0, x1, y1, radius, result);
+		return result;
+	}
+
+	public int segmentQuery(float x0, float y0, float x1, float y1, float radius, List<? super T> result) {
+		float dx = x1 - x0, dy = y1 - y0;
+		return raycast(x0, y0, dx, dy, (float) Math.sqrt(dx*dx + dy*dy), radius, result);
+	}
+
+	/**
+	 * @return Last entity passed to the result, or null if nothing was hit
+	 */
+	private T cast(float ox, float oy, float dirX, float dirY, float maxDist, float radius,
+			List<? super T> result, int limit) {
+		float length = (float) Math.sqrt(dirX*dirX + dirY*dirY);
+		if(limit <= 0 || length == 0 || maxDist < 0) return null;
+		dirX /= length;
+		dirY /= length;
+
+		// Clip the ray to the area entities within radius of it can be in
+		float t = QuadTree.enterDistance(boundaries, ox, oy, dirX, dirY, maxDist, radius);
+		if(t < 0) return null;
+		float tEnd = Math.min(maxDist, exitDistance(ox, oy, dirX, dirY, radius));
+
+		// A tile is scanned once per query, when its stamp is set
+		QueryScratch scratch = QueryScratch.acquire();
+		int[] stamps = scratch.stamps(row * col);
+		int stamp = scratch.stamp();
+		DistanceHeap hits = scratch.hits;
+
+		// Neighbour band around the crossed tile that may hold entities within radius
+		int bandX = (int) Math.ceil(radius / gridWidth);
+		int bandY = (int) Math.ceil(radius / gridHeight);
+		float radiusSq = radius * radius;
+
+		// Tile indices are not clamped while walking, the ray may run outside the grid
+		float px = ox + dirX * t, py = oy + dirY * t;
+		int i = (int) Math.floor((px - boundaries.x) / gridWidth);
+		int j = (int) Math.floor((py - boundaries.y) / gridHeight);
+		int stepX = dirX > 0 ? 1 : -1, stepY = dirY > 0 ? 1 : -1;
+		float nextX = dirX == 0 ? Float.POSITIVE_INFINITY
+				: (boundaries.x + (i + (dirX > 0 ? 1 : 0)) * gridWidth - ox) / dirX;
+		float nextY = dirY == 0 ? Float.POSITIVE_INFINITY
+				: (boundaries.y + (j + (dirY > 0 ? 1 : 0)) * gridHeight - oy) / dirY;
+		float deltaX = Math.abs(gridWidth / dirX), deltaY = Math.abs(gridHeight / dirY);
+
+		T last = null;
+		int count = 0;
+
+		try {
+			while(true) {
+				// Hits before this tile project onto tiles already scanned, so they are final
+				float bound = t > tEnd ? Float.POSITIVE_INFINITY : t;
+				while(!hits.isEmpty() && hits.peekKey() <= bound) {
+					last = pollHit(hits);
+					if(result != null) result.add(last);
+					if(++count == limit) return last;
+				}
+
+				if(t > tEnd) return last;
+
+				int minI = Math.max(0, i - bandX), maxI = Math.min(row - 1, i + bandX);
+				int minJ = Math.max(0, j - bandY), maxJ = Math.min(col - 1, j + bandY);
+				for(int a=minI; a<=maxI; a++) {
+					for(int b=minJ; b<=maxJ; b++) {
+						if(stamps[a * col + b] == stamp) continue;
+						stamps[a * col + b] = stamp;
+
+						ArrayList<T> entities = grids[a][b].entities;
+						for(int k=0, len=entities.size(); k<len; k++) {
+							T entity = entities.get(k);
+							float ex = entity.position.x - ox, ey = entity.position.y - oy;
+							float e = ex * dirX + ey * dirY;
+							if(e < 0 || e > maxDist) continue;
+							float dx = ex - e * dirX, dy = ey - e * dirY;
+							if(dx*dx + dy*dy <= radiusSq) {
+								hits.push(e, entity);
+							}
+						}
+					}
+				}
+
+				// Step into the next tile the ray crosses
+				if(nextX < nextY) {
+					t = nextX;
+					nextX += deltaX;
+					i += stepX;
+				}
+				else {
+					t = nextY;
+					nextY += deltaY;
+					j += stepY;
+				}
+			}
+		}
+		finally {
+			scratch.release();
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private T pollHit(DistanceHeap hits) {
+		return (T) hits.poll();
+	}
+
+	/**
+	 * @return Distance the ray leaves the boundaries grown by margin
+	 */
+	private float exitDistance(float ox, float oy, float dirX, float dirY, float margin) {
+		float tMax = Float.POSITIVE_INFINITY;
+		if(dirX != 0) {
+			tMax = Math.min(tMax, Math.max((boundaries.x - margin - ox) / dirX,
+					(boundaries.x + boundaries.w + margin - ox) / dirX));
+		}
+		if(dirY != 0) {
+			tMax = Math.min(tMax, Math.max((boundaries.y - margin - oy) / dirY,
+					(boundaries.y + boundaries.h + margin - oy) / dirY));
+		}
+		return tMax;
+	}
+
 }
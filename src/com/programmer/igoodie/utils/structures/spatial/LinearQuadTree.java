@@ -0,0 +1,263 @@
+package com.programmer.igoodie.utils.structures.spatial;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+
+import com.programmer.igoodie.utils.structures.Entity;
+import com.programmer.igoodie.utils.structures.shapes.Rectangle;
+
+/**
+ * Linear (pointerless) quad tree. Every point is quantized to a 16 bit grid and
+ * given the Z-order (Morton) code of its cell, and points are kept sorted by that code
+ * in flat arrays. A quad of the implicit tree is the contiguous key interval sharing its
+ * code prefix, so queries descend the implicit quads, locate the key intervals with binary
+ * search and scan them linearly.
+ * <br/>
+ * Meant to be rebuilt each tick with {@link #build(float[], float[], int[], int)},
+ * which sorts with an LSD radix sort and reuses its buffers between builds.
+ */
+public class LinearQuadTree extends AbstractLinearQuadTree {
+
+	public static final int LEVELS = 16;
+	public static final int MAGIC = 0x4C515431; // "LQT1"
+	public static final int HEADER_BYTES = 32;
+
+	private static final int CELLS = 1 << LEVELS;
+
+	private final float scaleX, scaleY;
+
+	private long[] keys = new long[0];
+	private float[] xs = new float[0], ys = new float[0];
+	private int[] ids = new int[0];
+	private int size;
+
+	// Radix sort buffers, reused between builds
+	private int[] codes = new int[0], codesTemp = new int[0];
+	private int[] order = new int[0], orderTemp = new int[0];
+	private final int[] counts = new int[256];
+	private float[] inputX = new float[0], inputY = new float[0];
+
+	public LinearQuadTree(float x, float y, float w, float h) {
+		super(x, y, w, h);
+		this.scaleX = CELLS / w;
+		this.scaleY = CELLS / h;
+	}
+
+	public LinearQuadTree(Rectangle boundary) {
+		this(boundary.x, boundary.y, boundary.w, boundary.h);
+	}
+
+	/* Morton codes */
+	public static long interleave(int cellX, int cellY) {
+		return (spread(cellX) | spread(cellY) << 1) & 0xFFFFFFFFL;
+	}
+
+	private static long spread(int v) {
+		long x = v & 0xFFFF;
+		x = (x | (x << 8)) & 0x00FF00FFL;
+		x = (x | (x << 4)) & 0x0F0F0F0FL;
+		x = (x | (x << 2)) & 0x33333333L;
+		x = (x | (x << 1)) & 0x55555555L;
+		return x;
+	}
+
+	public int cellX(float px) {
+		int cell = (int) ((px - x) * scaleX);
+		return cell < 0 ? 0 : cell >= CELLS ? CELLS - 1 : cell;
+	}
+
+	public int cellY(float py) {
+		int cell = (int) ((py - y) * scaleY);
+		return cell < 0 ? 0 : cell >= CELLS ? CELLS - 1 : cell;
+	}
+
+	public long key(float px, float py) {
+		return interleave(cellX(px), cellY(py));
+	}
+
+	/* Building */
+	/**
+	 * Replaces the content of the tree with given points.
+	 * Points out of the boundary are skipped, queries prune by cell geometry and would
+	 * miss them. Points on the boundary edges are kept.
+	 * @param ids Ids of the points, or null to use their indices
+	 * @return Number of points kept
+	 */
+	public int build(float[] xs, float[] ys, int[] ids, int count) {
+		ensureCapacity(count);
+
+		int kept = 0;
+		for(int i=0; i<count; i++) {
+			float px = xs[i], py = ys[i];
+			if(!(x <= px && px <= x + w && y <= py && py <= y + h)) continue;
+			codes[kept] = (int) key(px, py);
+			order[kept++] = i;
+		}
+
+		if(kept > 1) radixSort(kept);
+
+		for(int i=0; i<kept; i++) {
+			int index = order[i];
+			this.keys[i] = codes[i] & 0xFFFFFFFFL;
+			this.xs[i] = xs[index];
+			this.ys[i] = ys[index];
+			this.ids[i] = ids == null ? index : ids[index];
+		}
+
+		size = kept;
+		return kept;
+	}
+
+	/**
+	 * Replaces the content of the tree with positions of given entities.
+	 * Ids of the points are the indices of the entities in the list.
+	 * @return Number of entities kept, see {@link #build(float[], float[], int[], int)}
+	 */
+	public int build(List<? extends Entity> entities) {
+		int count = entities.size();
+		if(inputX.length < count) {
+			inputX = new float[count];
+			inputY = new float[count];
+		}
+		for(int i=0; i<count; i++) {
+			Entity entity = entities.get(i);
+			inputX[i] = entity.position.x;
+			inputY[i] = entity.position.y;
+		}
+		return build(inputX, inputY, null, count);
+	}
+
+	private void ensureCapacity(int count) {
+		if(keys.length < count) {
+			keys = new long[count];
+			xs = new float[count];
+			ys = new float[count];
+			ids = new int[count];
+			codes = new int[count];
+			codesTemp = new int[count];
+			order = new int[count];
+			orderTemp = new int[count];
+		}
+	}
+
+	/**
+	 * Sorts codes (as unsigned ints) along with the order, 8 bits per pass.
+	 */
+	private void radixSort(int count) {
+		for(int shift=0; shift<32; shift+=8) {
+			Arrays.fill(counts, 0);
+			for(int i=0; i<count; i++) {
+				counts[(codes[i] >>> shift) & 0xFF]++;
+			}
+
+			// Skip passes where every code has the same digit
+			if(counts[(codes[0] >>> shift) & 0xFF] == count) continue;
+
+			int sum = 0;
+			for(int d=0; d<256; d++) {
+				int c = counts[d];
+				counts[d] = sum;
+				sum += c;
+			}
+
+			for(int i=0; i<count; i++) {
+				int target = counts[(codes[i] >>> shift) & 0xFF]++;
+				codesTemp[target] = codes[i];
+				orderTemp[target] = order[i];
+			}
+
+			int[] swap = codes; codes = codesTemp; codesTemp = swap;
+			swap = order; order = orderTemp; orderTemp = swap;
+		}
+	}
+
+	/* Serialization */
+	public int byteSize() {
+		return HEADER_BYTES + size * (8 + 4 + 4 + 4);
+	}
+
+	/**
+	 * Writes the tree as a header followed by the key, x, y and id arrays.
+	 * Keys start at an 8 byte aligned offset.
+	 */
+	public void writeTo(ByteBuffer buffer) {
+		buffer.putInt(MAGIC);
+		buffer.putInt(size);
+		buffer.putFloat(x);
+		buffer.putFloat(y);
+		buffer.putFloat(w);
+		buffer.putFloat(h);
+		buffer.putInt(0); // Reserved
+		buffer.putInt(0);
+
+		for(int i=0; i<size; i++) buffer.putLong(keys[i]);
+		for(int i=0; i<size; i++) buffer.putFloat(xs[i]);
+		for(int i=0; i<size; i++) buffer.putFloat(ys[i]);
+		for(int i=0; i<size; i++) buffer.putInt(ids[i]);
+	}
+
+	/**
+	 * Writes the tree into given file, replacing its content.
+	 * Written file can be queried in place with {@link MappedLinearQuadTree#open(Path)}.
+	 */
+	public void writeTo(Path file) throws IOException {
+		try(FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+				StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, byteSize());
+			writeTo(buffer);
+			buffer.force();
+		}
+	}
+
+	public static LinearQuadTree readFrom(ByteBuffer buffer) {
+		if(buffer.getInt() != MAGIC) {
+			throw new IllegalArgumentException("Buffer doesn't contain a linear quad tree");
+		}
+
+		int size = buffer.getInt();
+		LinearQuadTree tree = new LinearQuadTree(buffer.getFloat(), buffer.getFloat(), buffer.getFloat(), buffer.getFloat());
+		buffer.getInt();
+		buffer.getInt();
+
+		tree.ensureCapacity(size);
+		for(int i=0; i<size; i++) tree.keys[i] = buffer.getLong();
+		for(int i=0; i<size; i++) tree.xs[i] = buffer.getFloat();
+		for(int i=0; i<size; i++) tree.ys[i] = buffer.getFloat();
+		for(int i=0; i<size; i++) tree.ids[i] = buffer.getInt();
+		tree.size = size;
+		return tree;
+	}
+
+	/* Point accessors */
+	@Override
+	long keyAt(int index) {
+		return keys[index];
+	}
+
+	@Override
+	float xAt(int index) {
+		return xs[index];
+	}
+
+	@Override
+	float yAt(int index) {
+		return ys[index];
+	}
+
+	@Override
+	int idAt(int index) {
+		return ids[index];
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+}
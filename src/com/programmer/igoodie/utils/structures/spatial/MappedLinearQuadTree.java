@@ -0,0 +1,107 @@
+package com.programmer.igoodie.utils.structures.spatial;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Read-only view of a {@link LinearQuadTree} snapshot, queried in place.
+ * <br/>
+ * Snapshot is written once with {@link LinearQuadTree#writeTo(Path)} and opened with
+ * {@link #open(Path)}, which only maps the file. Queries read keys and coordinates
+ * straight out of the buffer with absolute gets, so nothing is deserialized and pages
+ * are loaded by the OS as queries touch them. Absolute gets don't move the buffer
+ * position, so a single instance can be queried from several threads.
+ */
+public class MappedLinearQuadTree extends AbstractLinearQuadTree {
+
+	private final ByteBuffer buffer;
+	private final int size;
+
+	// Absolute offsets of the arrays in the buffer
+	private final int keysAt, xsAt, ysAt, idsAt;
+
+	/**
+	 * Wraps a buffer holding a snapshot at its current position.
+	 */
+	public MappedLinearQuadTree(ByteBuffer buffer) {
+		this(buffer, headerAt(buffer));
+	}
+
+	private MappedLinearQuadTree(ByteBuffer buffer, int base) {
+		super(buffer.getFloat(base + 8), buffer.getFloat(base + 12), buffer.getFloat(base + 16), buffer.getFloat(base + 20));
+
+		this.buffer = buffer;
+		this.size = buffer.getInt(base + 4);
+
+		if(buffer.remaining() < LinearQuadTree.HEADER_BYTES + (long) size * 20) {
+			throw new IllegalArgumentException("Buffer is too short for " + size + " points");
+		}
+
+		this.keysAt = base + LinearQuadTree.HEADER_BYTES;
+		this.xsAt = keysAt + size * 8;
+		this.ysAt = xsAt + size * 4;
+		this.idsAt = ysAt + size * 4;
+	}
+
+	/**
+	 * @return Position of the snapshot header in the buffer
+	 */
+	private static int headerAt(ByteBuffer buffer) {
+		int base = buffer.position();
+		if(buffer.remaining() < LinearQuadTree.HEADER_BYTES || buffer.getInt(base) != LinearQuadTree.MAGIC) {
+			throw new IllegalArgumentException("Buffer doesn't contain a linear quad tree");
+		}
+		return base;
+	}
+
+	/**
+	 * Maps given snapshot file read-only.
+	 */
+	public static MappedLinearQuadTree open(Path file) throws IOException {
+		try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			// Mapping stays valid after the channel is closed
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			return new MappedLinearQuadTree(buffer);
+		}
+	}
+
+	/**
+	 * Copies the snapshot into a regular, modifiable tree.
+	 */
+	public LinearQuadTree load() {
+		ByteBuffer view = buffer.duplicate();
+		view.position(keysAt - LinearQuadTree.HEADER_BYTES);
+		return LinearQuadTree.readFrom(view);
+	}
+
+	/* Point accessors */
+	@Override
+	long keyAt(int index) {
+		return buffer.getLong(keysAt + index * 8);
+	}
+
+	@Override
+	float xAt(int index) {
+		return buffer.getFloat(xsAt + index * 4);
+	}
+
+	@Override
+	float yAt(int index) {
+		return buffer.getFloat(ysAt + index * 4);
+	}
+
+	@Override
+	int idAt(int index) {
+		return buffer.getInt(idsAt + index * 4);
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+}
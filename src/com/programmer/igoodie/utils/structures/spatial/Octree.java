@@ -0,0 +1,392 @@
+package com.programmer.igoodie.utils.structures.spatial;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import com.programmer.igoodie.utils.math.MathUtils;
+import com.programmer.igoodie.utils.math.Vectorf;
+import com.programmer.igoodie.utils.structures.Entity;
+import com.programmer.igoodie.utils.structures.shapes.Box;
+import com.programmer.igoodie.utils.structures.shapes.Sphere;
+
+/**
+ * 3D counterpart of {@link QuadTree}, indexing entities by x, y and z of their position.
+ * <br/>
+ * Children are indexed by octant bits: 1 for the upper x half, 2 for the upper y half
+ * and 4 for the upper z half. Entities lying exactly on a splitting plane belong to no
+ * child and stay in the node itself, so are nodes at {@link #MAX_DEPTH}.
+ */
+public class Octree<T extends Entity> {
+
+	public static final int STD_CAPACITY = 16;
+	public static final int MAX_DEPTH = 16;
+
+	public ArrayList<T> entities = new ArrayList<>();
+
+	public Octree<T>[] children;
+
+	public Box boundary;
+
+	private final int depth;
+
+	public Octree(float x, float y, float z, float w, float h, float d) {
+		this(x, y, z, w, h, d, 0);
+	}
+
+	public Octree(Box boundary) {
+		this(boundary.x, boundary.y, boundary.z, boundary.w, boundary.h, boundary.d, 0);
+	}
+
+	private Octree(float x, float y, float z, float w, float h, float d, int depth) {
+		this.boundary = new Box(x, y, z, w, h, d);
+		this.depth = depth;
+	}
+
+	public boolean insert(T entity) {
+		if(!boundary.containsPoint(entity)) { // Entity doesn't belong to this node
+			return false;
+		}
+
+		Octree<T> node = this;
+		while(true) {
+			if(!node.isDivided()) {
+				if(node.entities.size() < STD_CAPACITY || node.depth == MAX_DEPTH) {
+					node.entities.add(entity);
+					return true;
+				}
+				node.subdivide();
+			}
+
+			int octant = node.octantOf(entity.position.x, entity.position.y, entity.position.z);
+			if(octant < 0) { // On a splitting plane
+				node.entities.add(entity);
+				return true;
+			}
+			node = node.children[octant];
+		}
+	}
+
+	public boolean insertAll(List<T> entities) {
+		boolean result = true;
+
+		for(T entity : entities) {
+			result &= insert(entity);
+		}
+
+		return result;
+	}
+
+	/**
+	 * Removes given entity, looking it up by its current position.
+	 * Children that become sparse are merged back into their parent.
+	 * @param entity Entity to be removed, compared by identity
+	 * @return True if the entity was found and removed
+	 */
+	public boolean remove(T entity) {
+		return remove(entity, entity.position.x, entity.position.y, entity.position.z);
+	}
+
+	private boolean remove(T entity, float x, float y, float z) {
+		if(!boundary.containsPoint(x, y, z)) { // Entity cannot be in this node
+			return false;
+		}
+
+		if(removeOwn(entity)) {
+			return true;
+		}
+
+		if(!isDivided()) {
+			return false;
+		}
+
+		int octant = octantOf(x, y, z);
+		if(octant < 0 || !children[octant].remove(entity, x, y, z)) {
+			return false;
+		}
+
+		tryMerge();
+		return true;
+	}
+
+	/**
+	 * Re-indexes given entity after its position was changed. If its new position is out
+	 * of the tree, the entity is removed and not re-inserted, so it is no longer in the tree.
+	 * @param entity Entity whose position was already updated
+	 * @param oldPosition Position of the entity when it was inserted or last updated
+	 * @return False if the entity couldn't be found or was dropped for leaving the tree
+	 */
+	public boolean update(T entity, Vectorf oldPosition) {
+		if(!remove(entity, oldPosition.x, oldPosition.y, oldPosition.z)) {
+			return false;
+		}
+		return insert(entity);
+	}
+
+	private boolean removeOwn(T entity) {
+		for(int i=0, size=entities.size(); i<size; i++) {
+			if(entities.get(i) == entity) {
+				entities.remove(i);
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private void tryMerge() {
+		int total = entities.size();
+		for(Octree<T> child : children) {
+			if(child.isDivided()) return;
+			total += child.entities.size();
+		}
+
+		if(total > STD_CAPACITY) {
+			return;
+		}
+
+		for(Octree<T> child : children) {
+			entities.addAll(child.entities);
+		}
+		children = null;
+	}
+
+	/**
+	 * @return Octant of the child that would hold given point, or -1 if it is on a splitting plane
+	 */
+	private int octantOf(float x, float y, float z) {
+		float midX = boundary.x + boundary.w / 2f;
+		float midY = boundary.y + boundary.h / 2f;
+		float midZ = boundary.z + boundary.d / 2f;
+
+		if(x == midX || y == midY || z == midZ) {
+			return -1;
+		}
+
+		return (x > midX ? 1 : 0) | (y > midY ? 2 : 0) | (z > midZ ? 4 : 0);
+	}
+
+	public void reset() {
+		entities.clear();
+		children = null;
+	}
+
+	public boolean isDivided() {
+		return children != null;
+	}
+
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	public void subdivide() {
+		float half_w = boundary.w / 2f;
+		float half_h = boundary.h / 2f;
+		float half_d = boundary.d / 2f;
+
+		children = new Octree[8];
+		for(int octant=0; octant<8; octant++) {
+			children[octant] = new Octree<>(
+					boundary.x + ((octant & 1) != 0 ? half_w : 0),
+					boundary.y + ((octant & 2) != 0 ? half_h : 0),
+					boundary.z + ((octant & 4) != 0 ? half_d : 0),
+					half_w, half_h, half_d, depth + 1);
+		}
+	}
+
+	/* Queries */
+	public ArrayList<T> query(Box range) {
+		ArrayList<T> result = new ArrayList<>();
+		query(range, result);
+		return result;
+	}
+
+	/**
+	 * Appends entities inside given range to the result. Does not clear the result,
+	 * so the same list can be reused across queries without allocating.
+	 */
+	public void query(Box range, List<? super T> result) {
+		traverse(range, null, null, result, Integer.MAX_VALUE);
+	}
+
+	public void query(Box range, Consumer<? super T> visitor) {
+		traverse(range, null, visitor, null, Integer.MAX_VALUE);
+	}
+
+	public ArrayList<T> query(Sphere range) {
+		ArrayList<T> result = new ArrayList<>();
+		query(range, result);
+		return result;
+	}
+
+	public void query(Sphere range, List<? super T> result) {
+		traverse(null, range, null, result, Integer.MAX_VALUE);
+	}
+
+	public void query(Sphere range, Consumer<? super T> visitor) {
+		traverse(null, range, visitor, null, Integer.MAX_VALUE);
+	}
+
+	public ArrayList<T> query(T entity, float radius) {
+		Vectorf p = entity.position;
+		return query(new Sphere(p.x, p.y, p.z, radius));
+	}
+
+	/* Early exit queries */
+	public boolean anyWithin(Box range) {
+		return traverse(range, null, null, null, 1) != 0;
+	}
+
+	public boolean anyWithin(Sphere range) {
+		return traverse(null, range, null, null, 1) != 0;
+	}
+
+	public int countWithin(Box range) {
+		return traverse(range, null, null, null, Integer.MAX_VALUE);
+	}
+
+	public int countWithin(Box range, int limit) {
+		return traverse(range, null, null, null, limit);
+	}
+
+	public int countWithin(Sphere range) {
+		return traverse(null, range, null, null, Integer.MAX_VALUE);
+	}
+
+	public int countWithin(Sphere range, int limit) {
+		return traverse(null, range, null, null, limit);
+	}
+
+	/* Nearest neighbour queries */
+	public ArrayList<T> nearest(float x, float y, float z, int k) {
+		return nearest(x, y, z, k, Float.POSITIVE_INFINITY);
+	}
+
+	public ArrayList<T> nearest(float x, float y, float z, int k, float maxDist) {
+		ArrayList<T> result = new ArrayList<>(Math.max(0, Math.min(k, 64)));
+		nearest(x, y, z, k, maxDist, result);
+		return result;
+	}
+
+	/**
+	 * Appends up to <b>k</b> entities closest to (x, y, z) to the result, nearest first.
+	 * Nodes are visited best-first by their distance to the point.
+	 * @param maxDist Entities farther than this distance are ignored
+	 * @return Number of entities appended
+	 */
+	@SuppressWarnings("unchecked")
+	public int nearest(float x, float y, float z, int k, float maxDist, List<? super T> result) {
+		if(k <= 0) return 0;
+
+		QueryScratch scratch = QueryScratch.acquire();
+		DistanceHeap frontier = scratch.frontier, candidates = scratch.candidates;
+		float maxDistSq = maxDist * maxDist;
+
+		try {
+			frontier.push(distanceSq(boundary, x, y, z), this);
+
+			while(!frontier.isEmpty()) {
+				float nodeDistSq = frontier.peekKey();
+
+				// Rest of the nodes are farther than what we already have
+				if(nodeDistSq > maxDistSq) break;
+				if(candidates.size() == k && nodeDistSq >= candidates.peekKey()) break;
+
+				Octree<T> node = (Octree<T>) frontier.poll();
+
+				ArrayList<T> entities = node.entities;
+				for(int i=0, size=entities.size(); i<size; i++) {
+					T entity = entities.get(i);
+					Vectorf p = entity.position;
+					float dx = x - p.x, dy = y - p.y, dz = z - p.z;
+					float distSq = dx*dx + dy*dy + dz*dz;
+					if(distSq <= maxDistSq) {
+						candidates.offer(distSq, entity, k);
+					}
+				}
+
+				if(node.isDivided()) {
+					for(Octree<T> child : node.children) {
+						float distSq = distanceSq(child.boundary, x, y, z);
+						if(distSq > maxDistSq) continue;
+						if(candidates.size() == k && distSq >= candidates.peekKey()) continue;
+						frontier.push(distSq, child);
+					}
+				}
+			}
+
+			candidates.sort();
+			int count = candidates.size();
+			for(int i=0; i<count; i++) {
+				result.add((T) candidates.valueAt(i));
+			}
+
+			return count;
+		}
+		finally {
+			scratch.release();
+		}
+	}
+
+	private static float distanceSq(Box b, float x, float y, float z) {
+		float dx = x - MathUtils.clamp(x, b.x, b.x + b.w);
+		float dy = y - MathUtils.clamp(y, b.y, b.y + b.h);
+		float dz = z - MathUtils.clamp(z, b.z, b.z + b.d);
+		return dx*dx + dy*dy + dz*dz;
+	}
+
+	/* Traversal */
+	/**
+	 * Visits entities inside the box, or the sphere if box is null.
+	 */
+	@SuppressWarnings("unchecked")
+	private int traverse(Box box, Sphere sphere, Consumer<? super T> visitor, List<? super T> result, int limit) {
+		if(limit <= 0) return 0;
+
+		QueryScratch scratch = QueryScratch.acquire();
+		int count = 0;
+		scratch.push(this);
+
+		try {
+			while(!scratch.isEmpty()) {
+				Octree<T> node = (Octree<T>) scratch.pop();
+
+				// If boundaries doesn't intersect
+				if(box != null ? !node.boundary.intersects(box) : !sphere.intersects(node.boundary)) {
+					continue;
+				}
+
+				// Traverse entities in this node, include intersecting ones
+				ArrayList<T> entities = node.entities;
+				for(int i=0, size=entities.size(); i<size; i++) {
+					T entity = entities.get(i);
+					if(box != null ? box.containsPoint(entity) : sphere.containsPoint(entity)) {
+						if(visitor != null) visitor.accept(entity);
+						else if(result != null) result.add(entity);
+						if(++count == limit) return count;
+					}
+				}
+
+				if(node.isDivided()) {
+					for(int octant=7; octant>=0; octant--) {
+						scratch.push(node.children[octant]);
+					}
+				}
+			}
+
+			return count;
+		}
+		finally {
+			scratch.release();
+		}
+	}
+
+	public int countNode() {
+		int count = 1;
+
+		if(isDivided()) {
+			for(Octree<T> child : children) {
+				count += child.countNode();
+			}
+		}
+
+		return count;
+	}
+
+}
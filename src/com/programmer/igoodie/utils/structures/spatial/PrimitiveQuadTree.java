@@ -0,0 +1,292 @@
+package com.programmer.igoodie.utils.structures.spatial;
+
+import java.util.Arrays;
+
+import com.programmer.igoodie.utils.structures.IntList;
+import com.programmer.igoodie.utils.structures.shapes.Circle;
+import com.programmer.igoodie.utils.structures.shapes.Rectangle;
+
+/**
+ * Struct-of-arrays variant of {@link QuadTree}. Points are stored as
+ * coordinates and int ids in flat primitive arrays, nodes are indices
+ * into parallel node arrays, so the tree holds no per-point objects.
+ * <br/>
+ * Like {@link QuadTree}, a node keeps up to capacity points and overflows
+ * into its four children. Points of a node are chained through {@link #next}.
+ * Children of a node are laid out next to each other as
+ * NW, NE, SW, SE starting from {@link #firstChild}.
+ * <br/>
+ * Not thread safe, queries reuse an internal traversal stack.
+ */
+public class PrimitiveQuadTree {
+
+	public static final int STD_CAPACITY = QuadTree.STD_CAPACITY;
+	public static final int MAX_DEPTH = 24;
+
+	private static final int NONE = -1;
+
+	private final int capacity;
+
+	/* Points */
+	private float[] xs, ys;
+	private int[] ids;
+	private int[] next;
+	private int pointCount;
+
+	/* Nodes */
+	private float[] nodeX, nodeY, nodeW, nodeH;
+	private int[] firstChild;
+	private int[] head;
+	private int[] count;
+	private int[] depth;
+	private int nodeCount;
+
+	private int[] stack = new int[64];
+
+	public PrimitiveQuadTree(float x, float y, float w, float h) {
+		this(x, y, w, h, STD_CAPACITY, 1024);
+	}
+
+	public PrimitiveQuadTree(float x, float y, float w, float h, int capacity, int expectedPoints) {
+		if(capacity < 1) {
+			throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+		}
+
+		this.capacity = capacity;
+
+		int points = Math.max(16, expectedPoints);
+		xs = new float[points];
+		ys = new float[points];
+		ids = new int[points];
+		next = new int[points];
+
+		int nodes = Math.max(5, 1 + 4 * (points / capacity));
+		nodeX = new float[nodes];
+		nodeY = new float[nodes];
+		nodeW = new float[nodes];
+		nodeH = new float[nodes];
+		firstChild = new int[nodes];
+		head = new int[nodes];
+		count = new int[nodes];
+		depth = new int[nodes];
+
+		nodeX[0] = x;
+		nodeY[0] = y;
+		nodeW[0] = w;
+		nodeH[0] = h;
+		reset();
+	}
+
+	/* Insertion */
+	public boolean insert(float x, float y, int id) {
+		if(!(nodeX[0] <= x && x <= nodeX[0] + nodeW[0]
+				&& nodeY[0] <= y && y <= nodeY[0] + nodeH[0])) { // Point doesn't belong to this tree
+			return false;
+		}
+
+		int node = 0;
+		while(count[node] >= capacity && depth[node] < MAX_DEPTH) {
+			if(firstChild[node] == NONE) {
+				subdivide(node);
+			}
+			node = childOf(node, x, y);
+		}
+
+		if(pointCount == xs.length) {
+			growPoints();
+		}
+
+		int point = pointCount++;
+		xs[point] = x;
+		ys[point] = y;
+		ids[point] = id;
+		next[point] = head[node];
+		head[node] = point;
+		count[node]++;
+		return true;
+	}
+
+	public void reset() {
+		pointCount = 0;
+		nodeCount = 1;
+		firstChild[0] = NONE;
+		head[0] = NONE;
+		count[0] = 0;
+		depth[0] = 0;
+	}
+
+	private int childOf(int node, float x, float y) {
+		int child = firstChild[node];
+		if(x >= nodeX[child + 1]) child += 1; // East
+		if(y >= nodeY[child + 2]) child += 2; // South
+		return child;
+	}
+
+	private void subdivide(int node) {
+		if(nodeCount + 4 > nodeX.length) {
+			growNodes();
+		}
+
+		float halfW = nodeW[node] / 2f;
+		float halfH = nodeH[node] / 2f;
+		float x = nodeX[node];
+		float y = nodeY[node];
+
+		int child = nodeCount;
+		nodeCount += 4;
+		firstChild[node] = child;
+
+		for(int i=0; i<4; i++) {
+			int c = child + i;
+			nodeX[c] = (i & 1) == 0 ? x : x + halfW;
+			nodeY[c] = (i & 2) == 0 ? y : y + halfH;
+			nodeW[c] = halfW;
+			nodeH[c] = halfH;
+			firstChild[c] = NONE;
+			head[c] = NONE;
+			count[c] = 0;
+			depth[c] = depth[node] + 1;
+		}
+	}
+
+	private void growPoints() {
+		int length = xs.length * 2;
+		xs = Arrays.copyOf(xs, length);
+		ys = Arrays.copyOf(ys, length);
+		ids = Arrays.copyOf(ids, length);
+		next = Arrays.copyOf(next, length);
+	}
+
+	private void growNodes() {
+		int length = nodeX.length * 2;
+		nodeX = Arrays.copyOf(nodeX, length);
+		nodeY = Arrays.copyOf(nodeY, length);
+		nodeW = Arrays.copyOf(nodeW, length);
+		nodeH = Arrays.copyOf(nodeH, length);
+		firstChild = Arrays.copyOf(firstChild, length);
+		head = Arrays.copyOf(head, length);
+		count = Arrays.copyOf(count, length);
+		depth = Arrays.copyOf(depth, length);
+	}
+
+	private int push(int top, int node) {
+		if(top == stack.length) {
+			stack = Arrays.copyOf(stack, top * 2);
+		}
+		stack[top] = node;
+		return top + 1;
+	}
+
+	/* Queries */
+	public IntList query(Rectangle range) {
+		return query(range.x, range.y, range.w, range.h, new IntList());
+	}
+
+	public IntList query(Rectangle range, IntList result) {
+		return query(range.x, range.y, range.w, range.h, result);
+	}
+
+	/**
+	 * Appends ids of the points strictly inside given rectangle to the result.
+	 * Same inclusion rule as {@link Rectangle#containsPoint(float, float)}.
+	 * @return Given result list
+	 */
+	public IntList query(float x, float y, float w, float h, IntList result) {
+		float maxX = x + w, maxY = y + h;
+		int top = push(0, 0);
+
+		while(top > 0) {
+			int node = stack[--top];
+
+			// If boundaries doesn't intersect
+			if(nodeX[node] > maxX || nodeX[node] + nodeW[node] < x
+					|| nodeY[node] > maxY || nodeY[node] + nodeH[node] < y) {
+				continue;
+			}
+
+			for(int p=head[node]; p!=NONE; p=next[p]) {
+				float px = xs[p], py = ys[p];
+				if(x < px && px < maxX && y < py && py < maxY) {
+					result.add(ids[p]);
+				}
+			}
+
+			int child = firstChild[node];
+			if(child != NONE) {
+				top = push(top, child);
+				top = push(top, child + 1);
+				top = push(top, child + 2);
+				top = push(top, child + 3);
+			}
+		}
+
+		return result;
+	}
+
+	public IntList query(Circle range) {
+		return query(range.x, range.y, range.radius, new IntList());
+	}
+
+	public IntList query(Circle range, IntList result) {
+		return query(range.x, range.y, range.radius, result);
+	}
+
+	/**
+	 * Appends ids of the points strictly inside given circle to the result.
+	 * Same inclusion rule as {@link Circle#containsPoint(float, float)}.
+	 * @return Given result list
+	 */
+	public IntList query(float cx, float cy, float radius, IntList result) {
+		float radiusSq = radius * radius;
+		int top = push(0, 0);
+
+		while(top > 0) {
+			int node = stack[--top];
+
+			// If boundaries doesn't intersect
+			float nx = nodeX[node], ny = nodeY[node];
+			float dx = cx - Math.max(nx, Math.min(cx, nx + nodeW[node]));
+			float dy = cy - Math.max(ny, Math.min(cy, ny + nodeH[node]));
+			if(dx*dx + dy*dy >= radiusSq) {
+				continue;
+			}
+
+			for(int p=head[node]; p!=NONE; p=next[p]) {
+				float px = cx - xs[p], py = cy - ys[p];
+				if(px*px + py*py < radiusSq) {
+					result.add(ids[p]);
+				}
+			}
+
+			int child = firstChild[node];
+			if(child != NONE) {
+				top = push(top, child);
+				top = push(top, child + 1);
+				top = push(top, child + 2);
+				top = push(top, child + 3);
+			}
+		}
+
+		return result;
+	}
+
+	/* Introspection */
+	public int size() {
+		return pointCount;
+	}
+
+	public int countQuad() {
+		return nodeCount;
+	}
+
+	/**
+	 * Estimates bytes held by the backing arrays, including unused capacity.
+	 * @return Approximate memory usage in bytes
+	 */
+	public long memoryEstimate() {
+		long points = 4L * 4 * xs.length;
+		long nodes = 8L * 4 * nodeX.length;
+		return points + nodes + 4L * stack.length;
+	}
+
+}
@@ -1,14 +1,23 @@
 package com.programmer.igoodie.utils.structures.spatial;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
 
+import com.programmer.igoodie.utils.math.MathUtils;
+import com.programmer.igoodie.utils.math.Vectorf;
 import com.programmer.igoodie.utils.structures.Entity;
 import com.programmer.igoodie.utils.structures.shapes.Circle;
 import com.programmer.igoodie.utils.structures.shapes.Rectangle;
+import com.programmer.igoodie.utils.structures.shapes.Shape;
 
 public class QuadTree<T extends Entity> {
 
 	public static final int STD_CAPACITY = 20;
+	public static final int STD_MAX_DEPTH = 16;
+	public static final float STD_MIN_SIZE = 0f;
 
 	public ArrayList<T> entities = new ArrayList<>();
 
@@ -17,8 +26,62 @@ public class QuadTree<T extends Entity> {
 
 	public Rectangle boundary;
 
+	// Split policy, shared by every quad of the tree
+	public final int capacity, maxDepth;
+	public final float minSize;
+	public final int depth;
+
 	public QuadTree(float x, float y, float w, float h) {
-		boundary = new Rectangle(x, y, w, h);
+		this(x, y, w, h, STD_CAPACITY, STD_MAX_DEPTH, STD_MIN_SIZE);
+	}
+
+	/**
+	 * @param capacity Entities a quad holds before it is divided
+	 * @param maxDepth Quads at this depth are never divided, root is at depth 0
+	 * @param minSize Quads are not divided if their sub quads would be narrower than this
+	 */
+	public QuadTree(float x, float y, float w, float h, int capacity, int maxDepth, float minSize) {
+		this(x, y, w, h, capacity, maxDepth, minSize, 0);
+
+		if(capacity < 1) {
+			throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+		}
+		if(maxDepth < 0) {
+			throw new IllegalArgumentException("Max depth cannot be negative: " + maxDepth);
+		}
+	}
+
+	private QuadTree(float x, float y, float w, float h, int capacity, int maxDepth, float minSize, int depth) {
+		this.boundary = new Rectangle(x, y, w, h);
+		this.capacity = capacity;
+		this.maxDepth = maxDepth;
+		this.minSize = minSize;
+		this.depth = depth;
+	}
+
+	/**
+	 * Builds a tree from all given entities at once, using the common fork/join pool.
+	 * Entities are ordered along a Z-order curve and sub quads are built in parallel.
+	 * Entities out of the boundary are skipped, as {@link #insert(Entity)} would reject them.
+	 * @return A tree that can be queried and modified like an incrementally built one
+	 */
+	public static <T extends Entity> QuadTree<T> bulkLoad(float x, float y, float w, float h, List<T> entities) {
+		return bulkLoad(x, y, w, h, entities, ForkJoinPool.commonPool());
+	}
+
+	public static <T extends Entity> QuadTree<T> bulkLoad(float x, float y, float w, float h, List<T> entities, ForkJoinPool pool) {
+		return bulkLoad(new QuadTree<>(x, y, w, h), entities, pool);
+	}
+
+	/**
+	 * Bulk loads given entities into an empty tree, following its split policy.
+	 * @return Given root
+	 */
+	public static <T extends Entity> QuadTree<T> bulkLoad(QuadTree<T> root, List<T> entities, ForkJoinPool pool) {
+		if(!root.entities.isEmpty() || root.isDivided()) {
+			throw new IllegalArgumentException("Bulk loading requires an empty tree");
+		}
+		return new QuadTreeBulkLoader<>(entities).load(root, pool);
 	}
 
 	public boolean insert(T entity) {
@@ -26,8 +89,8 @@ public class QuadTree<T extends Entity> {
 			return false;
 		}
 
-		// If there is enough room, append
-		if(entities.size() < STD_CAPACITY) {
+		// If there is enough room, or the quad cannot be divided any further, append
+		if(entities.size() < capacity || (!isDivided() && !canSplit())) {
 			entities.add(entity);
 			return true;
 		}
@@ -42,8 +105,16 @@ public class QuadTree<T extends Entity> {
 		if(southwest.insert(entity)) return true;
 		if(southeast.insert(entity)) return true;
 
-		// Unknown insertion error
-		return false;
+		// Entity lays on a sub quad border, no sub quad contains it
+		entities.add(entity);
+		return true;
+	}
+
+	/**
+	 * @return True if this quad is allowed to be divided by the split policy
+	 */
+	public boolean canSplit() {
+		return depth < maxDepth && boundary.w / 2f >= minSize && boundary.h / 2f >= minSize;
 	}
 
 	public boolean insertAll(ArrayList<T> entities) {
@@ -56,8 +127,126 @@ public class QuadTree<T extends Entity> {
 		return result;
 	}
 
+	/**
+	 * Removes given entity, looking it up by its current position.
+	 * Sub quads that become sparse are merged back into their parent.
+	 * @param entity Entity to be removed, compared by identity
+	 * @return True if the entity was found and removed
+	 */
+	public boolean remove(T entity) {
+		return remove(entity, entity.position.x, entity.position.y);
+	}
+
+	/**
+	 * Removes given entity, looking it up by given position instead of its current one.
+	 */
+	protected boolean remove(T entity, float x, float y) {
+		if(!boundary.containsPoint(x, y)) { // Entity cannot be in this quad
+			return false;
+		}
+
+		if(removeOwn(entity)) {
+			return true;
+		}
+
+		if(!isDivided()) {
+			return false;
+		}
+
+		boolean removed = northwest.remove(entity, x, y)
+				|| northeast.remove(entity, x, y)
+				|| southwest.remove(entity, x, y)
+				|| southeast.remove(entity, x, y);
+
+		if(removed) {
+			tryMerge();
+		}
+
+		return removed;
+	}
+
+	/**
+	 * Re-indexes given entity after its position was changed.
+	 * Entity is moved only if it left the quad that holds it. If its new position is out
+	 * of the tree, the entity is removed and not re-inserted, so it is no longer in the tree.
+	 * @param entity Entity whose position was already updated
+	 * @param oldPosition Position of the entity when it was inserted or last updated
+	 * @return False if the entity couldn't be found or was dropped for leaving the tree
+	 */
+	public boolean update(T entity, Vectorf oldPosition) {
+		QuadTree<T> owner = findOwner(entity, oldPosition.x, oldPosition.y);
+
+		if(owner == null) {
+			return false;
+		}
+
+		// Still inside the same quad, nothing to re-index
+		if(owner.boundary.containsPoint(entity)) {
+			return true;
+		}
+
+		remove(entity, oldPosition.x, oldPosition.y);
+		return insert(entity);
+	}
+
+	private QuadTree<T> findOwner(T entity, float x, float y) {
+		QuadTree<T> quad = this;
+
+		while(quad != null && quad.boundary.containsPoint(x, y)) {
+			for(int i=0, size=quad.entities.size(); i<size; i++) {
+				if(quad.entities.get(i) == entity) return quad;
+			}
+
+			if(!quad.isDivided()) return null;
+
+			if(quad.northwest.boundary.containsPoint(x, y)) quad = quad.northwest;
+			else if(quad.northeast.boundary.containsPoint(x, y)) quad = quad.northeast;
+			else if(quad.southwest.boundary.containsPoint(x, y)) quad = quad.southwest;
+			else quad = quad.southeast;
+		}
+
+		return null;
+	}
+
+	private boolean removeOwn(T entity) {
+		for(int i=0, size=entities.size(); i<size; i++) {
+			if(entities.get(i) == entity) {
+				entities.remove(i);
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Collapses sub quads into this quad if they are leaves
+	 * and all their entities fit into this quad.
+	 */
+	private void tryMerge() {
+		if(northwest.isDivided() || northeast.isDivided()
+				|| southwest.isDivided() || southeast.isDivided()) {
+			return;
+		}
+
+		int total = entities.size()
+				+ northwest.entities.size() + northeast.entities.size()
+				+ southwest.entities.size() + southeast.entities.size();
+
+		if(total > capacity) {
+			return;
+		}
+
+		entities.addAll(northwest.entities);
+		entities.addAll(northeast.entities);
+		entities.addAll(southwest.entities);
+		entities.addAll(southeast.entities);
+		northwest = northeast = southwest = southeast = null;
+	}
+
 	public void reset() {
 		entities.clear();
+		northwest = northeast = null;
+		southwest = southeast = null;
 	}
 
 	public boolean isDivided() {
@@ -70,10 +259,10 @@ public class QuadTree<T extends Entity> {
 		float x = boundary.x;
 		float y = boundary.y;
 
-		northwest = new QuadTree<>(x, y, half_w, half_h);
-		northeast = new QuadTree<>(x+half_w, y, half_w, half_h);
-		southwest = new QuadTree<>(x, y+half_h, half_w, half_h);
-		southeast = new QuadTree<>(x+half_w, y+half_h, half_w, half_h);
+		northwest = new QuadTree<>(x, y, half_w, half_h, capacity, maxDepth, minSize, depth + 1);
+		northeast = new QuadTree<>(x+half_w, y, half_w, half_h, capacity, maxDepth, minSize, depth + 1);
+		southwest = new QuadTree<>(x, y+half_h, half_w, half_h, capacity, maxDepth, minSize, depth + 1);
+		southeast = new QuadTree<>(x+half_w, y+half_h, half_w, half_h, capacity, maxDepth, minSize, depth + 1);
 	}
 
 	public ArrayList<QuadTree<T>> querySubquads(Rectangle range) {
@@ -94,59 +283,524 @@ public class QuadTree<T extends Entity> {
 
 	public ArrayList<T> query(Rectangle range) {
 		ArrayList<T> result = new ArrayList<>();
+		query(range, result);
+		return result;
+	}
 
-		// If boundaries doesn't intersect
-		if(!boundary.intersects(range)) {
-			return result; // Empty list
-		}
+	/**
+	 * Appends entities inside given range to the result. Does not clear the result,
+	 * so the same list can be reused across queries without allocating.
+	 */
+	public void query(Rectangle range, List<? super T> result) {
+		traverse(range, null, result, Integer.MAX_VALUE);
+	}
 
-		// Traverse entities in this quad level, include intersecting ones
-		for(T entity : entities) {
-			if(range.containsPoint(entity)) {
-				result.add(entity);
+	/**
+	 * Passes entities inside given range to the visitor without allocating.
+	 */
+	public void query(Rectangle range, Consumer<? super T> visitor) {
+		traverse(range, visitor, null, Integer.MAX_VALUE);
+	}
+
+	public ArrayList<T> query(Circle range) {
+		ArrayList<T> result = new ArrayList<>();
+		query(range, result);
+		return result;
+	}
+
+	public void query(Circle range, List<? super T> result) {
+		traverse(null, range.x, range.y, range.radius, null, result, Integer.MAX_VALUE);
+	}
+
+	public void query(Circle range, Consumer<? super T> visitor) {
+		traverse(null, range.x, range.y, range.radius, visitor, null, Integer.MAX_VALUE);
+	}
+
+	public ArrayList<T> query(T entity, float radius) {
+		ArrayList<T> result = new ArrayList<>();
+		query(entity.position.x, entity.position.y, radius, result);
+		return result;
+	}
+
+	public void query(float x, float y, float radius, List<? super T> result) {
+		traverse(null, x, y, radius, null, result, Integer.MAX_VALUE);
+	}
+
+	public void query(float x, float y, float radius, Consumer<? super T> visitor) {
+		traverse(null, x, y, radius, visitor, null, Integer.MAX_VALUE);
+	}
+
+	public ArrayList<T> query(Shape range) {
+		ArrayList<T> result = new ArrayList<>();
+		query(range, result);
+		return result;
+	}
+
+	/**
+	 * Appends entities inside given shape to the result. Quads and entities are rejected
+	 * against {@link Shape#bounds()} first, then the shape's exact tests run.
+	 */
+	public void query(Shape range, List<? super T> result) {
+		traverse(range, null, result, Integer.MAX_VALUE);
+	}
+
+	public void query(Shape range, Consumer<? super T> visitor) {
+		traverse(range, visitor, null, Integer.MAX_VALUE);
+	}
+
+	/* Early exit queries */
+	public boolean anyWithin(Rectangle range) {
+		return traverse(range, null, null, 1) != 0;
+	}
+
+	public boolean anyWithin(float x, float y, float radius) {
+		return traverse(null, x, y, radius, null, null, 1) != 0;
+	}
+
+	public boolean anyWithin(Shape range) {
+		return traverse(range, null, null, 1) != 0;
+	}
+
+	public int countWithin(Shape range) {
+		return traverse(range, null, null, Integer.MAX_VALUE);
+	}
+
+	public int countWithin(Shape range, int limit) {
+		return traverse(range, null, null, limit);
+	}
+
+	public int countWithin(Rectangle range) {
+		return traverse(range, null, null, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Counts entities inside given range, stops counting once <b>limit</b> is reached.
+	 * Useful for checks like "are there at least 3 enemies around".
+	 * @return Number of entities found, at most <b>limit</b>
+	 */
+	public int countWithin(Rectangle range, int limit) {
+		return traverse(range, null, null, limit);
+	}
+
+	public int countWithin(float x, float y, float radius) {
+		return traverse(null, x, y, radius, null, null, Integer.MAX_VALUE);
+	}
+
+	public int countWithin(float x, float y, float radius, int limit) {
+		return traverse(null, x, y, radius, null, null, limit);
+	}
+
+	/* Nearest neighbour queries */
+	public ArrayList<T> nearest(float x, float y, int k) {
+		return nearest(x, y, k, Float.POSITIVE_INFINITY);
+	}
+
+	public ArrayList<T> nearest(float x, float y, int k, float maxDist) {
+		ArrayList<T> result = new ArrayList<>(Math.max(0, Math.min(k, 64)));
+		nearest(x, y, k, maxDist, result);
+		return result;
+	}
+
+	/**
+	 * Appends up to <b>k</b> entities closest to (x, y) to the result, nearest first.
+	 * Quads are visited best-first by their distance to the point, and
+	 * quads farther than the current k-th candidate are never opened.
+	 * @param maxDist Entities farther than this distance are ignored
+	 * @return Number of entities appended
+	 */
+	@SuppressWarnings("unchecked")
+	public int nearest(float x, float y, int k, float maxDist, List<? super T> result) {
+		if(k <= 0) return 0;
+
+		QueryScratch scratch = QueryScratch.acquire();
+		DistanceHeap frontier = scratch.frontier, candidates = scratch.candidates;
+
+		try {
+			float maxDistSq = maxDist * maxDist;
+			frontier.push(distanceSq(boundary, x, y), this);
+
+			while(!frontier.isEmpty()) {
+				float quadDistSq = frontier.peekKey();
+
+				// Rest of the quads are farther than what we already have
+				if(quadDistSq > maxDistSq) break;
+				if(candidates.size() == k && quadDistSq >= candidates.peekKey()) break;
+
+				QuadTree<T> quad = (QuadTree<T>) frontier.poll();
+
+				ArrayList<T> entities = quad.entities;
+				for(int i=0, size=entities.size(); i<size; i++) {
+					T entity = entities.get(i);
+					float dx = x - entity.position.x, dy = y - entity.position.y;
+					float distSq = dx*dx + dy*dy;
+					if(distSq <= maxDistSq) {
+						candidates.offer(distSq, entity, k);
+					}
+				}
+
+				if(quad.isDivided()) {
+					pushIfCloser(scratch, quad.northwest, x, y, k, maxDistSq);
+					pushIfCloser(scratch, quad.northeast, x, y, k, maxDistSq);
+					pushIfCloser(scratch, quad.southwest, x, y, k, maxDistSq);
+					pushIfCloser(scratch, quad.southeast, x, y, k, maxDistSq);
+				}
 			}
+
+			candidates.sort();
+			int count = candidates.size();
+			for(int i=0; i<count; i++) {
+				result.add((T) candidates.valueAt(i));
+			}
+			return count;
+		}
+		finally {
+			scratch.release();
 		}
+	}
 
-		// Query subquads if is subdivided
-		if(isDivided()) {
-			result.addAll(northwest.query(range));
-			result.addAll(northeast.query(range));
-			result.addAll(southwest.query(range));
-			result.addAll(southeast.query(range));
+	private static void pushIfCloser(QueryScratch scratch, QuadTree<?> quad, float x, float y, int k, float maxDistSq) {
+		float distSq = distanceSq(quad.boundary, x, y);
+		if(distSq > maxDistSq) return;
+		if(scratch.candidates.size() == k && distSq >= scratch.candidates.peekKey()) return;
+		scratch.frontier.push(distSq, quad);
+	}
+
+	private static float distanceSq(Rectangle b, float x, float y) {
+		float dx = x - MathUtils.clamp(x, b.x, b.x + b.w);
+		float dy = y - MathUtils.clamp(y, b.y, b.y + b.h);
+		return dx*dx + dy*dy;
+	}
+
+	/* Batched queries */
+	public BatchResult<T> queryBatch(Circle[] ranges) {
+		int count = ranges.length;
+		float[] xs = new float[count], ys = new float[count], radii = new float[count];
+		for(int i=0; i<count; i++) {
+			xs[i] = ranges[i].x;
+			ys[i] = ranges[i].y;
+			radii[i] = ranges[i].radius;
 		}
+		return queryBatch(xs, ys, radii, count, null, new BatchResult<>());
+	}
+
+	/**
+	 * Runs <b>count</b> circle queries in one shared traversal. Queries are sorted along
+	 * a Z-order curve and carried down the tree together, so each quad is visited once
+	 * per batch instead of once per query.
+	 * @param pool Pool to split the batch on, or null to run on the calling thread
+	 * @param result Result to be filled, its arrays are reused if they are large enough
+	 * @return Given result, hits of query i are in row i
+	 */
+	public BatchResult<T> queryBatch(float[] xs, float[] ys, float[] radii, int count,
+			ForkJoinPool pool, BatchResult<T> result) {
+		return new QuadTreeBatchQuery<>(this, xs, ys, radii, count).run(pool, result);
+	}
 
+	/* Ray queries */
+	public ArrayList<T> raycast(Vectorf origin, Vectorf direction, float maxDist, float radius) {
+		ArrayList<T> result = new ArrayList<>();
+		raycast(origin.x, origin.y, direction.x, direction.y, maxDist, radius, result);
 		return result;
 	}
 
-	public ArrayList<T> query(Circle range) {
+	/**
+	 * Appends entities hit by the ray to the result, nearest first. Entities are points,
+	 * so the ray is given a thickness: an entity is hit if it is within <b>radius</b>
+	 * (inclusive) of the ray. Distance of a hit is its projection onto the ray.
+	 * <br/>
+	 * Quads are visited best-first by the distance the ray enters them (slab test
+	 * against the boundary grown by radius), so hits are streamed in order and
+	 * quads the ray doesn't cross are never opened.
+	 * @param dirX Direction of the ray, doesn't have to be normalized
+	 * @return Number of entities appended
+	 */
+	public int raycast(float ox, float oy, float dirX, float dirY, float maxDist, float radius, List<? super T> result) {
+		int size = result.size();
+		cast(ox, oy, dirX, dirY, maxDist, radius, result, Integer.MAX_VALUE);
+		return result.size() - size;
+	}
+
+	/**
+	 * @return Nearest entity hit by the ray, or null if there is none
+	 * @see #raycast(float, float, float, float, float, float, List)
+	 */
+	public T raycastFirst(Vectorf origin, Vectorf direction, float maxDist, float radius) {
+		return cast(origin.x, origin.y, direction.x, direction.y, maxDist, radius, null, 1);
+	}
+
+	public T raycastFirst(float ox, float oy, float dirX, float dirY, float maxDist, float radius) {
+		return cast(ox, oy, dirX, dirY, maxDist, radius, null, 1);
+	}
+
+	public ArrayList<T> segmentQuery(float x0, float y0, float x1, float y1, float radius) {
 		ArrayList<T> result = new ArrayList<>();
+		segmentQuery(x0, y0, x1, y1, radius, result);
+		return result;
+	}
+
+	/**
+	 * Appends entities within <b>radius</b> of the segment to the result, ordered by
+	 * their distance from (x0, y0) along the segment.
+	 * @return Number of entities appended
+	 */
+	public int segmentQuery(float x0, float y0, float x1, float y1, float radius, List<? super T> result) {
+		float dx = x1 - x0, dy = y1 - y0;
+		return raycast(x0, y0, dx, dy, (float) Math.sqrt(dx*dx + dy*dy), radius, result);
+	}
+
+	/**
+	 * @return Last entity passed to the result, or null if nothing was hit
+	 */
+	@SuppressWarnings("unchecked")
+	private T cast(float ox, float oy, float dirX, float dirY, float maxDist, float radius,
+			List<? super T> result, int limit) {
+		float length = (float) Math.sqrt(dirX*dirX + dirY*dirY);
+		if(limit <= 0 || length == 0 || maxDist < 0) return null;
+		dirX /= length;
+		dirY /= length;
+
+		QueryScratch scratch = QueryScratch.acquire();
+		DistanceHeap frontier = scratch.frontier, hits = scratch.hits;
+		float radiusSq = radius * radius;
+		T last = null;
+		int count = 0;
+
+		try {
+			pushIfCrossed(frontier, this, ox, oy, dirX, dirY, maxDist, radius);
+
+			while(true) {
+				// Hits closer than every unopened quad cannot be preceded by anything else
+				float next = frontier.isEmpty() ? Float.POSITIVE_INFINITY : frontier.peekKey();
+				while(!hits.isEmpty() && hits.peekKey() <= next) {
+					last = (T) hits.poll();
+					if(result != null) result.add(last);
+					if(++count == limit) return last;
+				}
+
+				if(frontier.isEmpty()) return last;
+
+				QuadTree<T> quad = (QuadTree<T>) frontier.poll();
+
+				ArrayList<T> entities = quad.entities;
+				for(int i=0, size=entities.size(); i<size; i++) {
+					T entity = entities.get(i);
+					float ex = entity.position.x - ox, ey = entity.position.y - oy;
+					float t = ex * dirX + ey * dirY;
+					if(t < 0 || t > maxDist) continue;
+					float px = ex - t * dirX, py = ey - t * dirY;
+					if(px*px + py*py <= radiusSq) {
+						hits.push(t, entity);
+					}
+				}
+
+				if(quad.isDivided()) {
+					pushIfCrossed(frontier, quad.northwest, ox, oy, dirX, dirY, maxDist, radius);
+					pushIfCrossed(frontier, quad.northeast, ox, oy, dirX, dirY, maxDist, radius);
+					pushIfCrossed(frontier, quad.southwest, ox, oy, dirX, dirY, maxDist, radius);
+					pushIfCrossed(frontier, quad.southeast, ox, oy, dirX, dirY, maxDist, radius);
+				}
+			}
+		}
+		finally {
+			scratch.release();
+		}
+	}
+
+	private static void pushIfCrossed(DistanceHeap frontier, QuadTree<?> quad, float ox, float oy, float dirX, float dirY, float maxDist, float radius) {
+		float t = enterDistance(quad.boundary, ox, oy, dirX, dirY, maxDist, radius);
+		if(t >= 0) frontier.push(t, quad);
+	}
 
-		// If boundaries doesn't intersect
-		if(!range.intersects(boundary)) {
-			return result; // Empty list
+	/**
+	 * Slab test of the ray against given rectangle grown by <b>margin</b> on each side.
+	 * @return Distance the ray enters the rectangle, or -1 if it misses it within maxDist
+	 */
+	static float enterDistance(Rectangle b, float ox, float oy, float dirX, float dirY, float maxDist, float margin) {
+		float tMin = 0, tMax = maxDist;
+
+		if(dirX != 0) {
+			float t1 = (b.x - margin - ox) / dirX, t2 = (b.x + b.w + margin - ox) / dirX;
+			tMin = Math.max(tMin, Math.min(t1, t2));
+			tMax = Math.min(tMax, Math.max(t1, t2));
+		}
+		else if(ox < b.x - margin || ox > b.x + b.w + margin) {
+			return -1;
 		}
 
-		// Traverse entities in this quad level, include intersecting ones
-		for(T entity : entities) {
-			if(range.containsPoint(entity)) {
-				result.add(entity);
+		if(dirY != 0) {
+			float t1 = (b.y - margin - oy) / dirY, t2 = (b.y + b.h + margin - oy) / dirY;
+			tMin = Math.max(tMin, Math.min(t1, t2));
+			tMax = Math.min(tMax, Math.max(t1, t2));
+		}
+		else if(oy < b.y - margin || oy > b.y + b.h + margin) {
+			return -1;
+		}
+
+		return tMin <= tMax ? tMin : -1;
+	}
+
+	/* Traversal */
+	private int traverse(Shape shape, Consumer<? super T> visitor, List<? super T> result, int limit) {
+		return traverse(shape, 0, 0, 0, visitor, result, limit);
+	}
+
+	/**
+	 * Visits entities inside the shape, or inside the circle (cx, cy, radius) if shape is null.
+	 * Circle tests match {@link Circle}'s, given as primitives they keep radius queries
+	 * free of allocations.
+	 */
+	@SuppressWarnings("unchecked")
+	private int traverse(Shape shape, float cx, float cy, float radius,
+			Consumer<? super T> visitor, List<? super T> result, int limit) {
+		if(limit <= 0) return 0;
+
+		float minX, minY, maxX, maxY;
+		if(shape != null) {
+			Rectangle bounds = shape.bounds();
+			minX = bounds.x;
+			minY = bounds.y;
+			maxX = bounds.x + bounds.w;
+			maxY = bounds.y + bounds.h;
+		}
+		else {
+			minX = cx - radius;
+			minY = cy - radius;
+			maxX = cx + radius;
+			maxY = cy + radius;
+		}
+		float radiusSq = radius * radius;
+
+		QueryScratch scratch = QueryScratch.acquire();
+		int count = 0;
+		scratch.push(this);
+
+		try {
+			while(!scratch.isEmpty()) {
+				QuadTree<T> quad = (QuadTree<T>) scratch.pop();
+
+				// Reject against the bounds first, then run the exact test
+				Rectangle b = quad.boundary;
+				if(b.x > maxX || b.x + b.w < minX || b.y > maxY || b.y + b.h < minY) {
+					continue;
+				}
+				if(shape != null ? !shape.intersectsRect(b.x, b.y, b.w, b.h) : distanceSq(b, cx, cy) >= radiusSq) {
+					continue;
+				}
+
+				ArrayList<T> entities = quad.entities;
+				for(int i=0, size=entities.size(); i<size; i++) {
+					T entity = entities.get(i);
+					float ex = entity.position.x, ey = entity.position.y;
+					if(ex < minX || ex > maxX || ey < minY || ey > maxY) continue;
+					float dx = cx - ex, dy = cy - ey;
+					if(shape != null ? shape.containsPoint(ex, ey) : dx*dx + dy*dy < radiusSq) {
+						if(visitor != null) visitor.accept(entity);
+						else if(result != null) result.add(entity);
+						if(++count == limit) return count;
+					}
+				}
+
+				// Push subquads in reverse, so they are visited NW, NE, SW, SE
+				if(quad.isDivided()) {
+					scratch.push(quad.southeast);
+					scratch.push(quad.southwest);
+					scratch.push(quad.northeast);
+					scratch.push(quad.northwest);
+				}
 			}
+
+			return count;
+		}
+		finally {
+			scratch.release();
 		}
+	}
 
-		// Query subquads if is subdivided
-		if(isDivided()) {
-			result.addAll(northwest.query(range));
-			result.addAll(northeast.query(range));
-			result.addAll(southwest.query(range));
-			result.addAll(southeast.query(range));
+	/* Statistics */
+	public static class Stats {
+		public int nodes, leaves, entities;
+		public int maxDepth;
+		public int overflowNodes; // Quads holding more entities than the capacity
+
+		public int[] nodesPerDepth;
+		public int[] entitiesPerDepth;
+		public int[] leafOccupancy; // Leaves by entity count, last slot counts the overflowing ones
+
+		public long memoryEstimate;
+
+		@Override
+		public String toString() {
+			StringBuilder sb = new StringBuilder("QuadTree.Stats[");
+			sb.append("nodes:").append(nodes);
+			sb.append(", leaves:").append(leaves);
+			sb.append(", entities:").append(entities);
+			sb.append(", maxDepth:").append(maxDepth);
+			sb.append(", overflowNodes:").append(overflowNodes);
+			sb.append(", memory:~").append(memoryEstimate / 1024).append("KiB");
+			sb.append("]\n");
+
+			for(int depth=0; depth<=maxDepth; depth++) {
+				sb.append("  depth ").append(depth).append(": ")
+				.append(nodesPerDepth[depth]).append(" nodes, ")
+				.append(entitiesPerDepth[depth]).append(" entities\n");
+			}
+
+			sb.append("  leaf occupancy:");
+			for(int i=0; i<leafOccupancy.length; i++) {
+				if(leafOccupancy[i] == 0) continue;
+				sb.append(' ').append(i == leafOccupancy.length - 1 ? ">" + (i - 1) : String.valueOf(i))
+				.append('=').append(leafOccupancy[i]);
+			}
+
+			return sb.toString();
 		}
+	}
 
-		return result;
+	// Rough shallow sizes with compressed oops: quad object, its boundary and its entity list
+	private static final int NODE_BYTES = 80 + 32 + 24;
+	private static final int ARRAY_HEADER_BYTES = 16;
+	private static final int REFERENCE_BYTES = 4;
+
+	/**
+	 * Walks the whole tree and collects depth, occupancy and memory statistics.
+	 * Memory estimate covers the tree itself, not the entities.
+	 */
+	public Stats stats() {
+		Stats stats = new Stats();
+		int levels = maxDepth - depth + 1;
+		stats.nodesPerDepth = new int[levels];
+		stats.entitiesPerDepth = new int[levels];
+		stats.leafOccupancy = new int[capacity + 2];
+
+		collectStats(stats, depth);
+
+		stats.nodesPerDepth = Arrays.copyOf(stats.nodesPerDepth, stats.maxDepth + 1);
+		stats.entitiesPerDepth = Arrays.copyOf(stats.entitiesPerDepth, stats.maxDepth + 1);
+		return stats;
 	}
 
-	public ArrayList<T> query(T entity, float radius) {
-		Circle q = new Circle(entity.position.x, entity.position.y, radius);
-		return query(q);
+	private void collectStats(Stats stats, int rootDepth) {
+		int relativeDepth = depth - rootDepth;
+		int size = entities.size();
+
+		stats.nodes++;
+		stats.entities += size;
+		stats.maxDepth = Math.max(stats.maxDepth, relativeDepth);
+		stats.nodesPerDepth[relativeDepth]++;
+		stats.entitiesPerDepth[relativeDepth] += size;
+		if(size > capacity) stats.overflowNodes++;
+		stats.memoryEstimate += NODE_BYTES + ARRAY_HEADER_BYTES + (long) REFERENCE_BYTES * Math.max(size, 10);
+
+		if(isDivided()) {
+			northwest.collectStats(stats, rootDepth);
+			northeast.collectStats(stats, rootDepth);
+			southwest.collectStats(stats, rootDepth);
+			southeast.collectStats(stats, rootDepth);
+		}
+		else {
+			stats.leaves++;
+			stats.leafOccupancy[Math.min(size, capacity + 1)]++;
+		}
 	}
 
 	public int countQuad() {
@@ -0,0 +1,248 @@
+package com.programmer.igoodie.utils.structures.spatial;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import com.programmer.igoodie.utils.math.MathUtils;
+import com.programmer.igoodie.utils.structures.Entity;
+import com.programmer.igoodie.utils.structures.shapes.Rectangle;
+
+/**
+ * Runs many circle queries against a {@link QuadTree} in a single traversal.
+ * <br/>
+ * Queries are sorted by the Z-order (Morton) code of their centers, then the tree is
+ * walked once carrying the subset of queries that still intersect the current quad.
+ * Entities of a quad are loaded once and tested against every query in the subset,
+ * instead of each query descending from the root on its own. Contiguous runs of the
+ * sorted queries are spatially close, so the parallel mode splits the batch into such
+ * runs and walks the tree for each run on the fork/join pool.
+ */
+class QuadTreeBatchQuery<T extends Entity> {
+
+	static final int PARALLEL_THRESHOLD = 1024;
+
+	private final QuadTree<T> root;
+	private final int count;
+	private final int[] order;
+
+	// Queries copied in sorted order, so walks read them sequentially
+	private final float[] xs, ys, radiiSq;
+
+	QuadTreeBatchQuery(QuadTree<T> root, float[] xs, float[] ys, float[] radii, int count) {
+		this.root = root;
+		this.count = count;
+		this.order = sortedOrder(xs, ys);
+
+		this.xs = new float[count];
+		this.ys = new float[count];
+		this.radiiSq = new float[count];
+		for(int i=0; i<count; i++) {
+			int q = order[i];
+			this.xs[i] = xs[q];
+			this.ys[i] = ys[q];
+			this.radiiSq[i] = radii[q] * radii[q];
+		}
+	}
+
+	private int[] sortedOrder(float[] xs, float[] ys) {
+		Rectangle b = root.boundary;
+		long[] keys = new long[count];
+		for(int i=0; i<count; i++) {
+			int cellX = (int) MathUtils.clamp((xs[i] - b.x) / b.w * 65535f, 0f, 65535f);
+			int cellY = (int) MathUtils.clamp((ys[i] - b.y) / b.h * 65535f, 0f, 65535f);
+			// Codes use all 32 bits, flipping the sign bit makes the signed sort unsigned
+			keys[i] = (LinearQuadTree.interleave(cellX, cellY) << 32 | i) ^ Long.MIN_VALUE;
+		}
+
+		Arrays.sort(keys);
+
+		int[] order = new int[count];
+		for(int i=0; i<count; i++) order[i] = (int) keys[i];
+		return order;
+	}
+
+	/**
+	 * @param pool Pool to split the batch on, or null to run on the calling thread
+	 */
+	BatchResult<T> run(ForkJoinPool pool, BatchResult<T> result) {
+		Hits hits = pool == null || count <= PARALLEL_THRESHOLD
+				? collect(0, count, result.pairs)
+				: pool.invoke(new CollectTask(0, count));
+		result.pairs = hits;
+		return hits.toResult(count, result);
+	}
+
+	private Hits collect(int from, int to, Hits reused) {
+		Walk walk = new Walk(reused == null ? new Hits() : reused.clear());
+		for(int i=from; i<to; i++) walk.push(i);
+		walk.visit(root, 0, walk.top);
+		return walk.hits;
+	}
+
+	private class CollectTask extends RecursiveTask<Hits> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final int from, to;
+
+		CollectTask(int from, int to) {
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected Hits compute() {
+			if(to - from <= PARALLEL_THRESHOLD) {
+				return collect(from, to, null);
+			}
+
+			int mid = (from + to) >>> 1;
+			CollectTask right = new CollectTask(mid, to);
+			right.fork();
+			Hits left = new CollectTask(from, mid).compute();
+			return left.append(right.join());
+		}
+	}
+
+	/**
+	 * Depth first walk. Active query subsets are stacked in a single int array,
+	 * subset of a quad is [from, to) and subsets of its sub quads are pushed on top.
+	 * Active queries are positions in the sorted order.
+	 */
+	private class Walk {
+		int[] active = new int[64];
+		int top;
+		final Hits hits;
+
+		Walk(Hits hits) {
+			this.hits = hits;
+		}
+
+		void push(int query) {
+			if(top == active.length) active = Arrays.copyOf(active, top * 2);
+			active[top++] = query;
+		}
+
+		void visit(QuadTree<T> quad, int from, int to) {
+			Rectangle b = quad.boundary;
+
+			// Keep only the queries reaching this quad
+			int start = top;
+			for(int i=from; i<to; i++) {
+				int q = active[i];
+				float x = xs[q], y = ys[q];
+				float dx = x - MathUtils.clamp(x, b.x, b.x + b.w);
+				float dy = y - MathUtils.clamp(y, b.y, b.y + b.h);
+				if(dx*dx + dy*dy >= radiiSq[q]) continue;
+
+				// Whole quad is inside the circle, take its subtree without testing
+				float fx = Math.max(x - b.x, b.x + b.w - x);
+				float fy = Math.max(y - b.y, b.y + b.h - y);
+				if(fx*fx + fy*fy < radiiSq[q]) {
+					addSubtree(quad, order[q]);
+					continue;
+				}
+
+				push(q);
+			}
+			int end = top;
+
+			if(start == end) {
+				return;
+			}
+
+			ArrayList<T> entities = quad.entities;
+			for(int e=0, size=entities.size(); e<size; e++) {
+				T entity = entities.get(e);
+				float ex = entity.position.x, ey = entity.position.y;
+				for(int i=start; i<end; i++) {
+					int q = active[i];
+					float dx = xs[q] - ex, dy = ys[q] - ey;
+					if(dx*dx + dy*dy < radiiSq[q]) {
+						hits.add(order[q], entity);
+					}
+				}
+			}
+
+			if(quad.isDivided()) {
+				visit(quad.northwest, start, end);
+				visit(quad.northeast, start, end);
+				visit(quad.southwest, start, end);
+				visit(quad.southeast, start, end);
+			}
+
+			top = start;
+		}
+
+		void addSubtree(QuadTree<T> quad, int query) {
+			ArrayList<T> entities = quad.entities;
+			for(int e=0, size=entities.size(); e<size; e++) {
+				hits.add(query, entities.get(e));
+			}
+
+			if(quad.isDivided()) {
+				addSubtree(quad.northwest, query);
+				addSubtree(quad.northeast, query);
+				addSubtree(quad.southwest, query);
+				addSubtree(quad.southeast, query);
+			}
+		}
+	}
+
+	/**
+	 * Unordered (query, entity) pairs, sorted into rows at the end.
+	 * Kept in the result, so sequential batches reuse the buffers.
+	 */
+	static class Hits {
+		int[] queries = new int[64];
+		Object[] entities = new Object[64];
+		int size;
+
+		void add(int query, Object entity) {
+			if(size == queries.length) {
+				queries = Arrays.copyOf(queries, size * 2);
+				entities = Arrays.copyOf(entities, size * 2);
+			}
+			queries[size] = query;
+			entities[size] = entity;
+			size++;
+		}
+
+		Hits clear() {
+			Arrays.fill(entities, 0, size, null);
+			size = 0;
+			return this;
+		}
+
+		Hits append(Hits other) {
+			for(int i=0; i<other.size; i++) add(other.queries[i], other.entities[i]);
+			return this;
+		}
+
+		<T> BatchResult<T> toResult(int queryCount, BatchResult<T> result) {
+			if(result.offsets.length < queryCount + 1) result.offsets = new int[queryCount + 1];
+			if(result.hits.length < size) result.hits = new Object[size];
+			else Arrays.fill(result.hits, size, result.hits.length, null);
+
+			// Counting sort by query
+			int[] offsets = result.offsets;
+			Arrays.fill(offsets, 0, queryCount + 1, 0);
+			for(int i=0; i<size; i++) offsets[queries[i] + 1]++;
+			for(int q=0; q<queryCount; q++) offsets[q + 1] += offsets[q];
+
+			// Rows are filled back to front, which leaves offsets at the row starts
+			for(int i=size-1; i>=0; i--) {
+				int q = queries[i];
+				result.hits[--offsets[q + 1]] = entities[i];
+			}
+			System.arraycopy(offsets, 1, offsets, 0, queryCount);
+			offsets[queryCount] = size;
+
+			result.queryCount = queryCount;
+			return result;
+		}
+	}
+
+}
@@ -0,0 +1,181 @@
+package com.programmer.igoodie.utils.structures.spatial;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+import com.programmer.igoodie.utils.structures.Entity;
+
+/**
+ * Builds a {@link QuadTree} from a whole entity list at once.
+ * <br/>
+ * Each entity gets a Z-order (Morton) key describing the quad path it takes
+ * from the root, computed with the exact float arithmetic of {@link QuadTree#subdivide()}.
+ * Keys are sorted in parallel, after which the entities of every quad are a
+ * contiguous range and sub quads can be built independently with fork/join.
+ * <br/>
+ * Keys are written in base 5, one digit per level: 1-4 for NW, NE, SW, SE and 0
+ * for entities that lay exactly on the border of the sub quads. Those entities stay
+ * in the quad itself, as no sub quad contains them. Ranges deeper than {@link #KEY_LEVELS}
+ * fall back to regular insertion. Capacity and split limits are taken from the root.
+ */
+class QuadTreeBulkLoader<T extends Entity> {
+
+	static final int KEY_LEVELS = 12;
+	static final int INDEX_BITS = 35;
+	static final int PARALLEL_THRESHOLD = 8192;
+
+	private static final long[] POW5 = new long[KEY_LEVELS + 1];
+	private static final long KEY_OUTSIDE;
+
+	static {
+		POW5[0] = 1;
+		for(int i=1; i<=KEY_LEVELS; i++) POW5[i] = POW5[i-1] * 5;
+		KEY_OUTSIDE = POW5[KEY_LEVELS];
+	}
+
+	private final List<T> entities;
+	private final long[] packed;
+
+	QuadTreeBulkLoader(List<T> entities) {
+		this.entities = entities;
+		this.packed = new long[entities.size()];
+	}
+
+	QuadTree<T> load(final QuadTree<T> root, ForkJoinPool pool) {
+		return pool.invoke(new RecursiveTask<QuadTree<T>>() {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected QuadTree<T> compute() {
+				Arrays.parallelSetAll(packed, i -> key(root, entities.get(i)) << INDEX_BITS | i);
+				Arrays.parallelSort(packed);
+
+				// Entities out of the root are sorted last, skip them
+				int end = firstWithDigitAtLeast(0, packed.length, KEY_LEVELS, 1);
+				new BuildTask(root, 0, end, 0).compute();
+				return root;
+			}
+		});
+	}
+
+	/**
+	 * Follows the quad path of the entity the way {@link QuadTree#insert(Entity)} would.
+	 */
+	static long key(QuadTree<?> root, Entity entity) {
+		float px = entity.position.x, py = entity.position.y;
+
+		if(!root.boundary.containsPoint(px, py)) {
+			return KEY_OUTSIDE;
+		}
+
+		float x = root.boundary.x, y = root.boundary.y;
+		float w = root.boundary.w, h = root.boundary.h;
+		long key = 0;
+
+		for(int level=0; level<KEY_LEVELS; level++) {
+			float halfW = w / 2f;
+			float halfH = h / 2f;
+			float eastX = x + halfW;
+			float southY = y + halfH;
+
+			int digit;
+			if(x < px && px < x + halfW && y < py && py < y + halfH) digit = 1;
+			else if(eastX < px && px < eastX + halfW && y < py && py < y + halfH) digit = 2;
+			else if(x < px && px < x + halfW && southY < py && py < southY + halfH) digit = 3;
+			else if(eastX < px && px < eastX + halfW && southY < py && py < southY + halfH) digit = 4;
+			else break; // On a border, stays in this quad
+
+			key += digit * POW5[KEY_LEVELS - 1 - level];
+			if(digit == 2 || digit == 4) x = eastX;
+			if(digit == 3 || digit == 4) y = southY;
+			w = halfW;
+			h = halfH;
+		}
+
+		return key;
+	}
+
+	private int digit(int index, int level) {
+		long key = packed[index] >>> INDEX_BITS;
+		if(level == KEY_LEVELS) return key >= KEY_OUTSIDE ? 1 : 0;
+		return (int) (key / POW5[KEY_LEVELS - 1 - level] % 5);
+	}
+
+	/**
+	 * Entities in [from, to) share their digits above given level,
+	 * so digits at the level are sorted and can be binary searched.
+	 */
+	private int firstWithDigitAtLeast(int from, int to, int level, int digit) {
+		int lo = from, hi = to;
+		while(lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if(digit(mid, level) < digit) lo = mid + 1;
+			else hi = mid;
+		}
+		return lo;
+	}
+
+	private T entityAt(int index) {
+		return entities.get((int) (packed[index] & ((1L << INDEX_BITS) - 1)));
+	}
+
+	private class BuildTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final QuadTree<T> quad;
+		private final int from, to, level;
+
+		BuildTask(QuadTree<T> quad, int from, int to, int level) {
+			this.quad = quad;
+			this.from = from;
+			this.to = to;
+			this.level = level;
+		}
+
+		@Override
+		protected void compute() {
+			int count = to - from;
+
+			// Fits into a single quad, or the split policy doesn't allow dividing
+			if(count <= quad.capacity || !quad.canSplit()) {
+				for(int i=from; i<to; i++) quad.entities.add(entityAt(i));
+				return;
+			}
+
+			// Ran out of key digits, let regular insertion split the rest
+			if(level == KEY_LEVELS) {
+				for(int i=from; i<to; i++) quad.insert(entityAt(i));
+				return;
+			}
+
+			int nw = firstWithDigitAtLeast(from, to, level, 1);
+			int ne = firstWithDigitAtLeast(nw, to, level, 2);
+			int sw = firstWithDigitAtLeast(ne, to, level, 3);
+			int se = firstWithDigitAtLeast(sw, to, level, 4);
+
+			// Entities on sub quad borders
+			for(int i=from; i<nw; i++) quad.entities.add(entityAt(i));
+
+			quad.subdivide();
+			BuildTask northwest = new BuildTask(quad.northwest, nw, ne, level + 1);
+			BuildTask northeast = new BuildTask(quad.northeast, ne, sw, level + 1);
+			BuildTask southwest = new BuildTask(quad.southwest, sw, se, level + 1);
+			BuildTask southeast = new BuildTask(quad.southeast, se, to, level + 1);
+
+			if(count > PARALLEL_THRESHOLD) {
+				invokeAll(northwest, northeast, southwest, southeast);
+			}
+			else {
+				northwest.compute();
+				northeast.compute();
+				southwest.compute();
+				southeast.compute();
+			}
+		}
+	}
+
+}
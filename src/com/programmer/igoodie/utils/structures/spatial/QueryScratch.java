@@ -0,0 +1,83 @@
+package com.programmer.igoodie.utils.structures.spatial;
+
+import java.util.Arrays;
+
+/**
+ * Per-thread scratch space of the tree queries, so read-only queries keep no state on
+ * the structure and can run on several threads at once. A query started while another
+ * one is running on the same thread (e.g. from a visitor) gets a fresh instance.
+ * <br/>
+ * Usage: {@link #acquire()}, then {@link #release()} in a finally block.
+ */
+final class QueryScratch {
+
+	private static final ThreadLocal<QueryScratch> LOCAL = ThreadLocal.withInitial(QueryScratch::new);
+
+	private boolean inUse;
+
+	// Traversal stack, holds nodes of whichever tree runs the query
+	private Object[] stack = new Object[64];
+	private int top;
+
+	// Heaps of the best-first searches and ray casts
+	final DistanceHeap frontier = new DistanceHeap(false);
+	final DistanceHeap candidates = new DistanceHeap(true);
+	final DistanceHeap hits = new DistanceHeap(false);
+
+	// Visited marks of grid tiles, a tile is visited when its mark equals the current stamp
+	private int[] stamps = new int[0];
+	private int stamp;
+
+	static QueryScratch acquire() {
+		QueryScratch scratch = LOCAL.get();
+		if(scratch.inUse) {
+			scratch = new QueryScratch();
+		}
+		scratch.inUse = true;
+		return scratch;
+	}
+
+	void release() {
+		Arrays.fill(stack, 0, top, null);
+		top = 0;
+		frontier.clear();
+		candidates.clear();
+		hits.clear();
+		inUse = false;
+	}
+
+	/* Stack */
+	boolean isEmpty() {
+		return top == 0;
+	}
+
+	void push(Object node) {
+		if(top == stack.length) stack = Arrays.copyOf(stack, top * 2);
+		stack[top++] = node;
+	}
+
+	Object pop() {
+		Object node = stack[--top];
+		stack[top] = null;
+		return node;
+	}
+
+	/* Stamps */
+	/**
+	 * Starts a new visit over <b>tiles</b> tiles, none of them is marked afterwards.
+	 * @return Marks of the tiles, compare against {@link #stamp()}
+	 */
+	int[] stamps(int tiles) {
+		if(stamps.length < tiles) stamps = new int[tiles];
+		if(++stamp == 0) { // Wrapped around, old stamps could collide
+			Arrays.fill(stamps, 0);
+			stamp = 1;
+		}
+		return stamps;
+	}
+
+	int stamp() {
+		return stamp;
+	}
+
+}
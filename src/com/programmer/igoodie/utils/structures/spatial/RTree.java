@@ -0,0 +1,394 @@
+package com.programmer.igoodie.utils.structures.spatial;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import com.programmer.igoodie.utils.structures.shapes.Circle;
+import com.programmer.igoodie.utils.structures.shapes.Rectangle;
+
+/**
+ * R-tree indexing items with an extent, either a {@link Rectangle} or a {@link Circle}.
+ * <br/>
+ * Each node stores the bounding boxes of its children in flat float arrays, so
+ * checking a node is a linear scan over at most fan-out boxes. Fan-out can be tuned
+ * to fit the boxes of a node into a few cache lines. Items are tested against their
+ * exact extent after their bounding box overlaps the query.
+ * <br/>
+ * Trees can be grown with {@link #insert(Object, Rectangle)} or packed at once with
+ * Sort-Tile-Recursive bulk loading, which gives nearly full, barely overlapping nodes.
+ */
+public class RTree<T> {
+
+	public static final int STD_FAN_OUT = 16;
+
+	static final class Node {
+		final boolean leaf;
+		final float[] minX, minY, maxX, maxY;
+		final Object[] children; // Nodes, or items on leaves
+		final Object[] extents; // Rectangle or Circle of the items, leaves only
+		int count;
+
+		Node(boolean leaf, int capacity) {
+			this.leaf = leaf;
+			minX = new float[capacity];
+			minY = new float[capacity];
+			maxX = new float[capacity];
+			maxY = new float[capacity];
+			children = new Object[capacity];
+			extents = leaf ? new Object[capacity] : null;
+		}
+
+		void add(float x0, float y0, float x1, float y1, Object child, Object extent) {
+			minX[count] = x0;
+			minY[count] = y0;
+			maxX[count] = x1;
+			maxY[count] = y1;
+			children[count] = child;
+			if(leaf) extents[count] = extent;
+			count++;
+		}
+
+		void copyEntry(int index, Node target) {
+			target.add(minX[index], minY[index], maxX[index], maxY[index],
+					children[index], leaf ? extents[index] : null);
+		}
+
+		/**
+		 * @return Bounds of this node as {minX, minY, maxX, maxY}
+		 */
+		float[] bounds(float[] out) {
+			out[0] = out[1] = Float.POSITIVE_INFINITY;
+			out[2] = out[3] = Float.NEGATIVE_INFINITY;
+			for(int i=0; i<count; i++) {
+				out[0] = Math.min(out[0], minX[i]);
+				out[1] = Math.min(out[1], minY[i]);
+				out[2] = Math.max(out[2], maxX[i]);
+				out[3] = Math.max(out[3], maxY[i]);
+			}
+			return out;
+		}
+	}
+
+	private final int fanOut;
+	private Node root;
+	private int size;
+
+	// Scratch for node bounds, writes are not thread safe anyway
+	private final float[] bounds = new float[4];
+
+	public RTree() {
+		this(STD_FAN_OUT);
+	}
+
+	public RTree(int fanOut) {
+		if(fanOut < 4) {
+			throw new IllegalArgumentException("Fan-out must be at least 4: " + fanOut);
+		}
+		this.fanOut = fanOut;
+		this.root = new Node(true, fanOut + 1);
+	}
+
+	/* Insertion */
+	public void insert(T item, Rectangle extent) {
+		insert(item, extent, extent.x, extent.y, extent.x + extent.w, extent.y + extent.h);
+	}
+
+	public void insert(T item, Circle extent) {
+		insert(item, extent, extent.x - extent.radius, extent.y - extent.radius,
+				extent.x + extent.radius, extent.y + extent.radius);
+	}
+
+	private void insert(T item, Object extent, float x0, float y0, float x1, float y1) {
+		Node split = insert(root, item, extent, x0, y0, x1, y1);
+
+		// Root was split, grow the tree by one level
+		if(split != null) {
+			Node newRoot = new Node(false, fanOut + 1);
+			root.bounds(bounds);
+			newRoot.add(bounds[0], bounds[1], bounds[2], bounds[3], root, null);
+			split.bounds(bounds);
+			newRoot.add(bounds[0], bounds[1], bounds[2], bounds[3], split, null);
+			root = newRoot;
+		}
+
+		size++;
+	}
+
+	/**
+	 * @return Sibling created by splitting the node, or null if node didn't overflow
+	 */
+	private Node insert(Node node, T item, Object extent, float x0, float y0, float x1, float y1) {
+		if(node.leaf) {
+			node.add(x0, y0, x1, y1, item, extent);
+		}
+		else {
+			int index = chooseSubtree(node, x0, y0, x1, y1);
+			Node child = (Node) node.children[index];
+			Node split = insert(child, item, extent, x0, y0, x1, y1);
+
+			child.bounds(bounds);
+			node.minX[index] = bounds[0];
+			node.minY[index] = bounds[1];
+			node.maxX[index] = bounds[2];
+			node.maxY[index] = bounds[3];
+
+			if(split != null) {
+				split.bounds(bounds);
+				node.add(bounds[0], bounds[1], bounds[2], bounds[3], split, null);
+			}
+		}
+
+		return node.count > fanOut ? split(node) : null;
+	}
+
+	/**
+	 * Picks the child needing the least area enlargement, ties broken by smaller area.
+	 */
+	private static int chooseSubtree(Node node, float x0, float y0, float x1, float y1) {
+		int best = 0;
+		float bestGrowth = Float.POSITIVE_INFINITY, bestArea = Float.POSITIVE_INFINITY;
+
+		for(int i=0; i<node.count; i++) {
+			float area = (node.maxX[i] - node.minX[i]) * (node.maxY[i] - node.minY[i]);
+			float grown = (Math.max(node.maxX[i], x1) - Math.min(node.minX[i], x0))
+					* (Math.max(node.maxY[i], y1) - Math.min(node.minY[i], y0));
+			float growth = grown - area;
+
+			if(growth < bestGrowth || (growth == bestGrowth && area < bestArea)) {
+				best = i;
+				bestGrowth = growth;
+				bestArea = area;
+			}
+		}
+
+		return best;
+	}
+
+	/**
+	 * Sorts the entries by their centers along the axis they spread the most
+	 * and moves the upper half into a new sibling.
+	 */
+	private Node split(Node node) {
+		float minCX = Float.POSITIVE_INFINITY, maxCX = Float.NEGATIVE_INFINITY;
+		float minCY = Float.POSITIVE_INFINITY, maxCY = Float.NEGATIVE_INFINITY;
+		for(int i=0; i<node.count; i++) {
+			float cx = node.minX[i] + node.maxX[i], cy = node.minY[i] + node.maxY[i];
+			minCX = Math.min(minCX, cx); maxCX = Math.max(maxCX, cx);
+			minCY = Math.min(minCY, cy); maxCY = Math.max(maxCY, cy);
+		}
+
+		boolean alongX = maxCX - minCX >= maxCY - minCY;
+		int[] order = sortByCenter(node, 0, node.count, alongX);
+
+		Node lower = new Node(node.leaf, fanOut + 1);
+		Node upper = new Node(node.leaf, fanOut + 1);
+		int half = node.count / 2;
+		for(int i=0; i<node.count; i++) {
+			node.copyEntry(order[i], i < half ? lower : upper);
+		}
+
+		// Keep the original node object, it is referenced by its parent
+		int count = lower.count;
+		node.count = 0;
+		for(int i=0; i<count; i++) lower.copyEntry(i, node);
+		Arrays.fill(node.children, count, node.children.length, null);
+		if(node.leaf) Arrays.fill(node.extents, count, node.extents.length, null);
+
+		return upper;
+	}
+
+	/* Bulk loading */
+	/**
+	 * Replaces the content of the tree with given items, packed with Sort-Tile-Recursive.
+	 * @param extentOf Rectangle extent of an item
+	 */
+	public void bulkLoad(List<T> items, Function<? super T, Rectangle> extentOf) {
+		Node leafEntries = new Node(true, items.size());
+		for(T item : items) {
+			Rectangle extent = extentOf.apply(item);
+			leafEntries.add(extent.x, extent.y, extent.x + extent.w, extent.y + extent.h, item, extent);
+		}
+		pack(leafEntries);
+	}
+
+	/**
+	 * Replaces the content of the tree with given items, packed with Sort-Tile-Recursive.
+	 * @param extentOf Circle extent of an item
+	 */
+	public void bulkLoadCircles(List<T> items, Function<? super T, Circle> extentOf) {
+		Node leafEntries = new Node(true, items.size());
+		for(T item : items) {
+			Circle extent = extentOf.apply(item);
+			leafEntries.add(extent.x - extent.radius, extent.y - extent.radius,
+					extent.x + extent.radius, extent.y + extent.radius, item, extent);
+		}
+		pack(leafEntries);
+	}
+
+	private void pack(Node entries) {
+		size = entries.count;
+
+		if(entries.count == 0) {
+			root = new Node(true, fanOut + 1);
+			return;
+		}
+
+		// Pack level by level until everything fits into a single node
+		Node level = entries;
+		while(true) {
+			Node parents = packLevel(level);
+			if(parents.count == 1) {
+				root = (Node) parents.children[0];
+				return;
+			}
+			level = parents;
+		}
+	}
+
+	/**
+	 * Tiles given entries into nodes of fan-out size.
+	 * @return Entries of the created nodes, to be packed by the next level
+	 */
+	private Node packLevel(Node entries) {
+		int count = entries.count;
+		int nodeCount = (count + fanOut - 1) / fanOut;
+		int slabCount = (int) Math.ceil(Math.sqrt(nodeCount));
+		int slabSize = slabCount * fanOut;
+
+		Node parents = new Node(false, nodeCount);
+		int[] byX = sortByCenter(entries, 0, count, true);
+
+		for(int slab=0; slab<count; slab+=slabSize) {
+			int slabEnd = Math.min(slab + slabSize, count);
+
+			// Sort the slab by y, through a view of its entries
+			Node slabEntries = new Node(entries.leaf, slabEnd - slab);
+			for(int i=slab; i<slabEnd; i++) entries.copyEntry(byX[i], slabEntries);
+			int[] byY = sortByCenter(slabEntries, 0, slabEntries.count, false);
+
+			for(int run=0; run<slabEntries.count; run+=fanOut) {
+				int runEnd = Math.min(run + fanOut, slabEntries.count);
+				Node node = new Node(entries.leaf, fanOut + 1);
+				for(int i=run; i<runEnd; i++) slabEntries.copyEntry(byY[i], node);
+
+				node.bounds(bounds);
+				parents.add(bounds[0], bounds[1], bounds[2], bounds[3], node, null);
+			}
+		}
+
+		return parents;
+	}
+
+	private static int[] sortByCenter(Node node, int from, int to, boolean alongX) {
+		long[] keys = new long[to - from];
+		for(int i=from; i<to; i++) {
+			float center = alongX ? node.minX[i] + node.maxX[i] : node.minY[i] + node.maxY[i];
+			int bits = Float.floatToIntBits(center);
+			int sortable = bits ^ ((bits >> 31) & 0x7FFFFFFF);
+			keys[i - from] = (long) sortable << 32 | i;
+		}
+
+		Arrays.sort(keys);
+
+		int[] order = new int[keys.length];
+		for(int i=0; i<keys.length; i++) order[i] = (int) keys[i];
+		return order;
+	}
+
+	/* Queries */
+	/**
+	 * Visits items whose extent overlaps given rectangle.
+	 */
+	@SuppressWarnings("unchecked")
+	public void query(Rectangle range, Consumer<? super T> visitor) {
+		query(root, range, range.x, range.y, range.x + range.w, range.y + range.h, (Consumer<Object>) visitor);
+	}
+
+	/**
+	 * Visits items whose extent overlaps given circle.
+	 */
+	@SuppressWarnings("unchecked")
+	public void query(Circle range, Consumer<? super T> visitor) {
+		query(root, range, range.x - range.radius, range.y - range.radius,
+				range.x + range.radius, range.y + range.radius, (Consumer<Object>) visitor);
+	}
+
+	/**
+	 * Visits items whose extent contains given point, e.g. the trigger areas an entity is in.
+	 */
+	@SuppressWarnings("unchecked")
+	public void query(float x, float y, Consumer<? super T> visitor) {
+		queryPoint(root, x, y, (Consumer<Object>) visitor);
+	}
+
+	private static void query(Node node, Object range, float x0, float y0, float x1, float y1, Consumer<Object> visitor) {
+		for(int i=0; i<node.count; i++) {
+			if(node.minX[i] > x1 || node.maxX[i] < x0 || node.minY[i] > y1 || node.maxY[i] < y0) {
+				continue;
+			}
+
+			if(!node.leaf) {
+				query((Node) node.children[i], range, x0, y0, x1, y1, visitor);
+			}
+			else if(overlaps(range, node.extents[i])) {
+				visitor.accept(node.children[i]);
+			}
+		}
+	}
+
+	private static void queryPoint(Node node, float x, float y, Consumer<Object> visitor) {
+		for(int i=0; i<node.count; i++) {
+			if(node.minX[i] > x || node.maxX[i] < x || node.minY[i] > y || node.maxY[i] < y) {
+				continue;
+			}
+
+			if(!node.leaf) {
+				queryPoint((Node) node.children[i], x, y, visitor);
+			}
+			else {
+				Object extent = node.extents[i];
+				boolean contains = extent instanceof Circle
+						? ((Circle) extent).containsPoint(x, y)
+						: ((Rectangle) extent).containsPoint(x, y);
+				if(contains) visitor.accept(node.children[i]);
+			}
+		}
+	}
+
+	/**
+	 * Exact overlap test, bounding boxes are known to overlap already.
+	 */
+	private static boolean overlaps(Object range, Object extent) {
+		if(range instanceof Rectangle) {
+			return !(extent instanceof Circle) || ((Circle) extent).intersects((Rectangle) range);
+		}
+
+		Circle circle = (Circle) range;
+		return extent instanceof Circle
+				? circle.intersects((Circle) extent)
+				: circle.intersects((Rectangle) extent);
+	}
+
+	/* Introspection */
+	public int size() {
+		return size;
+	}
+
+	public int fanOut() {
+		return fanOut;
+	}
+
+	public int height() {
+		int height = 1;
+		for(Node node = root; !node.leaf; node = (Node) node.children[0]) height++;
+		return height;
+	}
+
+	public void clear() {
+		root = new Node(true, fanOut + 1);
+		size = 0;
+	}
+
+}
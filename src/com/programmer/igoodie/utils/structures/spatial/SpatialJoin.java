@@ -0,0 +1,224 @@
+package com.programmer.igoodie.utils.structures.spatial;
+
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BiConsumer;
+
+import com.programmer.igoodie.utils.structures.Entity;
+import com.programmer.igoodie.utils.structures.shapes.Rectangle;
+
+/**
+ * Distance join of two {@link QuadTree}s: reports every pair (a, b) with a from the first
+ * tree and b from the second whose distance is within a threshold (inclusive).
+ * <br/>
+ * Both trees are walked together. A pair of quads is dropped as soon as their boundaries
+ * are farther apart than the threshold, so whole subtree pairs are skipped at once.
+ * Entities held by a quad are joined against the other quad's subtree, pruned against their
+ * tight bounds. Joining a tree with itself reports every pair twice and each entity with itself.
+ */
+public final class SpatialJoin {
+
+	// Node pairs are forked down to this depth in the parallel mode
+	private static final int PARALLEL_DEPTH = 2;
+
+	private SpatialJoin() {}
+
+	/**
+	 * @return Number of pairs passed to the consumer
+	 */
+	public static <A extends Entity, B extends Entity> long join(QuadTree<A> a, QuadTree<B> b,
+			float distance, BiConsumer<? super A, ? super B> consumer) {
+		return new Join<>(distance, consumer).join(a, b);
+	}
+
+	/**
+	 * Same as {@link #join(QuadTree, QuadTree, float, BiConsumer)}, but the pairs of top
+	 * level quads are joined in parallel on the common fork/join pool.
+	 * Consumer is called from several threads.
+	 */
+	public static <A extends Entity, B extends Entity> long joinParallel(QuadTree<A> a, QuadTree<B> b,
+			float distance, BiConsumer<? super A, ? super B> consumer) {
+		return joinParallel(a, b, distance, consumer, ForkJoinPool.commonPool());
+	}
+
+	public static <A extends Entity, B extends Entity> long joinParallel(QuadTree<A> a, QuadTree<B> b,
+			float distance, BiConsumer<? super A, ? super B> consumer, ForkJoinPool pool) {
+		Join<A, B> join = new Join<>(distance, consumer);
+		return pool.invoke(join.new JoinTask(a, b, 0));
+	}
+
+	private static float distanceSq(Rectangle r1, Rectangle r2) {
+		return distanceSq(r1.x, r1.y, r1.x + r1.w, r1.y + r1.h, r2);
+	}
+
+	private static float distanceSq(float minX, float minY, float maxX, float maxY, Rectangle r) {
+		float dx = Math.max(0, Math.max(r.x - maxX, minX - (r.x + r.w)));
+		float dy = Math.max(0, Math.max(r.y - maxY, minY - (r.y + r.h)));
+		return dx*dx + dy*dy;
+	}
+
+	private static class Join<A extends Entity, B extends Entity> {
+
+		final float distanceSq;
+		final BiConsumer<? super A, ? super B> consumer;
+
+		Join(float distance, BiConsumer<? super A, ? super B> consumer) {
+			this.distanceSq = distance * distance;
+			this.consumer = consumer;
+		}
+
+		long join(QuadTree<A> a, QuadTree<B> b) {
+			long pairs = joinOwn(a, b);
+			if(pairs < 0) return 0;
+
+			if(a.isDivided() && b.isDivided()) {
+				for(int i=0; i<4; i++) {
+					for(int j=0; j<4; j++) {
+						pairs += join(child(a, i), child(b, j));
+					}
+				}
+			}
+
+			return pairs;
+		}
+
+		/**
+		 * Joins everything of the pair except the child by child pairs.
+		 * @return Pairs found, or -1 if the quads are too far apart
+		 */
+		long joinOwn(QuadTree<A> a, QuadTree<B> b) {
+			if(distanceSq(a.boundary, b.boundary) > distanceSq) {
+				return -1;
+			}
+
+			long pairs = pairs(a.entities, b.entities);
+
+			// Entities of one quad against the sub quads of the other
+			if(b.isDivided() && !a.entities.isEmpty()) {
+				float[] bounds = bounds(a.entities);
+				for(int i=0; i<4; i++) pairs += joinListA(a.entities, bounds, child(b, i));
+			}
+			if(a.isDivided() && !b.entities.isEmpty()) {
+				float[] bounds = bounds(b.entities);
+				for(int i=0; i<4; i++) pairs += joinListB(child(a, i), b.entities, bounds);
+			}
+
+			return pairs;
+		}
+
+		long joinListA(ArrayList<A> list, float[] bounds, QuadTree<B> b) {
+			if(distanceSq(bounds[0], bounds[1], bounds[2], bounds[3], b.boundary) > distanceSq) {
+				return 0;
+			}
+
+			long pairs = pairs(list, b.entities);
+			if(b.isDivided()) {
+				for(int i=0; i<4; i++) pairs += joinListA(list, bounds, child(b, i));
+			}
+			return pairs;
+		}
+
+		long joinListB(QuadTree<A> a, ArrayList<B> list, float[] bounds) {
+			if(distanceSq(bounds[0], bounds[1], bounds[2], bounds[3], a.boundary) > distanceSq) {
+				return 0;
+			}
+
+			long pairs = pairs(a.entities, list);
+			if(a.isDivided()) {
+				for(int i=0; i<4; i++) pairs += joinListB(child(a, i), list, bounds);
+			}
+			return pairs;
+		}
+
+		long pairs(ArrayList<A> as, ArrayList<B> bs) {
+			long pairs = 0;
+
+			for(int i=0, sizeA=as.size(); i<sizeA; i++) {
+				A entityA = as.get(i);
+				float x = entityA.position.x, y = entityA.position.y;
+
+				for(int j=0, sizeB=bs.size(); j<sizeB; j++) {
+					B entityB = bs.get(j);
+					float dx = entityB.position.x - x, dy = entityB.position.y - y;
+					if(dx*dx + dy*dy <= distanceSq) {
+						consumer.accept(entityA, entityB);
+						pairs++;
+					}
+				}
+			}
+
+			return pairs;
+		}
+
+		class JoinTask extends RecursiveTask<Long> {
+
+			private static final long serialVersionUID = 1L;
+
+			private final QuadTree<A> a;
+			private final QuadTree<B> b;
+			private final int depth;
+
+			JoinTask(QuadTree<A> a, QuadTree<B> b, int depth) {
+				this.a = a;
+				this.b = b;
+				this.depth = depth;
+			}
+
+			@Override
+			protected Long compute() {
+				if(depth >= PARALLEL_DEPTH) {
+					return Join.this.join(a, b);
+				}
+
+				long pairs = joinOwn(a, b);
+				if(pairs < 0) return 0L;
+
+				if(a.isDivided() && b.isDivided()) {
+					ArrayList<JoinTask> tasks = new ArrayList<>(16);
+					for(int i=0; i<4; i++) {
+						for(int j=0; j<4; j++) {
+							QuadTree<A> childA = child(a, i);
+							QuadTree<B> childB = child(b, j);
+							// Cheap to check here, saves forking tasks that prune immediately
+							if(distanceSq(childA.boundary, childB.boundary) <= distanceSq) {
+								tasks.add(new JoinTask(childA, childB, depth + 1));
+							}
+						}
+					}
+
+					for(JoinTask task : invokeAll(tasks)) {
+						pairs += task.join();
+					}
+				}
+
+				return pairs;
+			}
+		}
+	}
+
+	private static float[] bounds(ArrayList<? extends Entity> entities) {
+		float minX = Float.POSITIVE_INFINITY, minY = Float.POSITIVE_INFINITY;
+		float maxX = Float.NEGATIVE_INFINITY, maxY = Float.NEGATIVE_INFINITY;
+
+		for(int i=0, size=entities.size(); i<size; i++) {
+			Entity entity = entities.get(i);
+			minX = Math.min(minX, entity.position.x);
+			minY = Math.min(minY, entity.position.y);
+			maxX = Math.max(maxX, entity.position.x);
+			maxY = Math.max(maxY, entity.position.y);
+		}
+
+		return new float[] { minX, minY, maxX, maxY };
+	}
+
+	private static <T extends Entity> QuadTree<T> child(QuadTree<T> quad, int index) {
+		switch(index) {
+		case 0: return quad.northwest;
+		case 1: return quad.northeast;
+		case 2: return quad.southwest;
+		default: return quad.southeast;
+		}
+	}
+
+}
@@ -0,0 +1,215 @@
+package com.programmer.igoodie.utils.structures.spatial;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BiConsumer;
+
+import com.programmer.igoodie.utils.structures.Entity;
+
+/**
+ * Broad-phase pair finder using sort and sweep along the x axis.
+ * <br/>
+ * Points are kept in an index order sorted by x. Consecutive frames usually move points
+ * only a little, so the order of the previous frame is repaired with an insertion sort
+ * instead of sorting from scratch. Sweep then compares each point only with the points
+ * after it whose x is within the distance, so every pair is reported exactly once.
+ * <br/>
+ * Not thread safe, the parallel sweep only parallelizes a single call.
+ */
+public class SweepAndPrune {
+
+	@FunctionalInterface
+	public interface PairConsumer {
+		void accept(int a, int b);
+	}
+
+	// If repairing the order takes more shifts per point than this, sort from scratch
+	private static final int MAX_SHIFTS_PER_POINT = 8;
+	private static final int PARALLEL_THRESHOLD = 4096;
+
+	private float[] xs = new float[0], ys = new float[0];
+	private int size;
+
+	private int[] order = new int[0];
+	private float[] sortedX = new float[0], sortedY = new float[0];
+	private int sortedSize = -1;
+
+	/* Input */
+	/**
+	 * Copies coordinates of the next frame. Indices passed to the {@link PairConsumer}
+	 * are indices into these arrays.
+	 */
+	public void update(float[] xs, float[] ys, int size) {
+		ensureCapacity(size);
+		System.arraycopy(xs, 0, this.xs, 0, size);
+		System.arraycopy(ys, 0, this.ys, 0, size);
+		this.size = size;
+		sort();
+	}
+
+	/**
+	 * Copies entity positions of the next frame. Indices passed to the
+	 * {@link PairConsumer} are indices into the given list.
+	 */
+	public void update(List<? extends Entity> entities) {
+		int size = entities.size();
+		ensureCapacity(size);
+		for(int i=0; i<size; i++) {
+			Entity entity = entities.get(i);
+			xs[i] = entity.position.x;
+			ys[i] = entity.position.y;
+		}
+		this.size = size;
+		sort();
+	}
+
+	private void ensureCapacity(int size) {
+		if(xs.length < size) {
+			int length = Math.max(size, xs.length * 2);
+			xs = Arrays.copyOf(xs, length);
+			ys = Arrays.copyOf(ys, length);
+			order = Arrays.copyOf(order, length);
+			sortedX = new float[length];
+			sortedY = new float[length];
+		}
+	}
+
+	/* Sorting */
+	private void sort() {
+		if(sortedSize != size || !repairOrder()) {
+			sortFromScratch();
+		}
+
+		for(int i=0; i<size; i++) {
+			sortedX[i] = xs[order[i]];
+			sortedY[i] = ys[order[i]];
+		}
+		sortedSize = size;
+	}
+
+	/**
+	 * Insertion sort over the previous frame's order.
+	 * @return False if it gave up because points moved too much
+	 */
+	private boolean repairOrder() {
+		long budget = (long) size * MAX_SHIFTS_PER_POINT;
+
+		for(int i=1; i<size; i++) {
+			int index = order[i];
+			float x = xs[index];
+			int j = i - 1;
+			while(j >= 0 && xs[order[j]] > x) {
+				order[j + 1] = order[j];
+				j--;
+				if(--budget < 0) {
+					order[j + 1] = index;
+					return false;
+				}
+			}
+			order[j + 1] = index;
+		}
+
+		return true;
+	}
+
+	private void sortFromScratch() {
+		long[] keys = new long[size];
+		for(int i=0; i<size; i++) {
+			int bits = Float.floatToIntBits(xs[i]);
+			int sortable = bits ^ ((bits >> 31) & 0x7FFFFFFF);
+			keys[i] = (long) sortable << 32 | i;
+		}
+
+		Arrays.sort(keys);
+
+		for(int i=0; i<size; i++) {
+			order[i] = (int) keys[i];
+		}
+	}
+
+	/* Sweep */
+	/**
+	 * Reports every pair of points within given distance (inclusive) exactly once.
+	 * @return Number of pairs reported
+	 */
+	public int findPairs(float distance, PairConsumer consumer) {
+		return sweep(0, size, distance * distance, distance, consumer);
+	}
+
+	/**
+	 * Same as {@link #findPairs(float, PairConsumer)}, but splits the sweep into bands
+	 * processed on the common fork/join pool. Consumer is called from several threads.
+	 */
+	public int findPairsParallel(float distance, PairConsumer consumer) {
+		return ForkJoinPool.commonPool().invoke(new SweepTask(0, size, distance, consumer));
+	}
+
+	public <T extends Entity> int findPairs(final List<T> entities, float distance, final BiConsumer<? super T, ? super T> consumer) {
+		update(entities);
+		return findPairs(distance, (a, b) -> consumer.accept(entities.get(a), entities.get(b)));
+	}
+
+	public <T extends Entity> int findPairsParallel(final List<T> entities, float distance, final BiConsumer<? super T, ? super T> consumer) {
+		update(entities);
+		return findPairsParallel(distance, (a, b) -> consumer.accept(entities.get(a), entities.get(b)));
+	}
+
+	/**
+	 * Sweeps points whose sorted position is in [from, to). Their partners may be past <b>to</b>.
+	 */
+	private int sweep(int from, int to, float distanceSq, float distance, PairConsumer consumer) {
+		int pairs = 0;
+
+		for(int i=from; i<to; i++) {
+			float x = sortedX[i], y = sortedY[i];
+			float maxX = x + distance;
+
+			for(int j=i+1; j<size && sortedX[j] <= maxX; j++) {
+				float dx = sortedX[j] - x;
+				float dy = sortedY[j] - y;
+				if(dx*dx + dy*dy <= distanceSq) {
+					consumer.accept(order[i], order[j]);
+					pairs++;
+				}
+			}
+		}
+
+		return pairs;
+	}
+
+	private class SweepTask extends RecursiveTask<Integer> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final int from, to;
+		private final float distance;
+		private final PairConsumer consumer;
+
+		SweepTask(int from, int to, float distance, PairConsumer consumer) {
+			this.from = from;
+			this.to = to;
+			this.distance = distance;
+			this.consumer = consumer;
+		}
+
+		@Override
+		protected Integer compute() {
+			if(to - from <= PARALLEL_THRESHOLD) {
+				return sweep(from, to, distance * distance, distance, consumer);
+			}
+
+			int mid = (from + to) >>> 1;
+			SweepTask right = new SweepTask(mid, to, distance, consumer);
+			right.fork();
+			int left = new SweepTask(from, mid, distance, consumer).compute();
+			return left + right.join();
+		}
+	}
+
+	public int size() {
+		return size;
+	}
+
+}
@@ -0,0 +1,107 @@
+package com.programmer.igoodie.utils.structures.spatial;
+
+import java.util.ArrayList;
+
+import com.programmer.igoodie.utils.structures.DirtyTracker;
+import com.programmer.igoodie.utils.structures.TrackedEntity;
+
+/**
+ * {@link QuadTree} that keeps track of which of its entities moved.
+ * <br/>
+ * Entities report their first move since they were indexed through {@link DirtyTracker},
+ * and {@link #refresh()} re-indexes only those, so a tick costs time proportional
+ * to the moved entities instead of a full rebuild. Entities must be moved with
+ * {@link TrackedEntity#moveTo(float, float)} or {@link TrackedEntity#moveBy(float, float)}.
+ */
+public class TrackedQuadTree<T extends TrackedEntity> extends QuadTree<T> implements DirtyTracker {
+
+	private final ArrayList<T> dirty = new ArrayList<>();
+
+	public TrackedQuadTree(float x, float y, float w, float h) {
+		super(x, y, w, h);
+	}
+
+	public TrackedQuadTree(float x, float y, float w, float h, int capacity, int maxDepth, float minSize) {
+		super(x, y, w, h, capacity, maxDepth, minSize);
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public void markDirty(TrackedEntity entity) {
+		dirty.add((T) entity);
+	}
+
+	@Override
+	public boolean insert(T entity) {
+		if(!super.insert(entity)) {
+			return false;
+		}
+
+		entity.indexed(this);
+		return true;
+	}
+
+	/**
+	 * Removes given entity, looking it up by the position it was indexed at.
+	 */
+	@Override
+	public boolean remove(T entity) {
+		if(entity.getTracker() != this) {
+			return false;
+		}
+
+		boolean removed = remove(entity, entity.getIndexedPosition().x, entity.getIndexedPosition().y);
+		entity.detach();
+		return removed;
+	}
+
+	/**
+	 * Re-indexes every entity that moved since the last refresh.
+	 * Entities that moved out of the boundary are removed and detached.
+	 * @return Number of entities re-indexed
+	 */
+	public int refresh() {
+		int refreshed = 0;
+
+		for(int i=0, size=dirty.size(); i<size; i++) {
+			T entity = dirty.get(i);
+
+			// Removed after it was marked
+			if(entity.getTracker() != this || !entity.isDirty()) continue;
+
+			if(update(entity, entity.getIndexedPosition())) {
+				entity.indexed(this);
+				refreshed++;
+			}
+			else {
+				entity.detach();
+			}
+		}
+
+		dirty.clear();
+		return refreshed;
+	}
+
+	public int dirtyCount() {
+		return dirty.size();
+	}
+
+	@Override
+	public void reset() {
+		detachAll(this);
+		dirty.clear();
+		super.reset();
+	}
+
+	private static <T extends TrackedEntity> void detachAll(QuadTree<T> quad) {
+		for(T entity : quad.entities) entity.detach();
+
+		if(quad.isDivided()) {
+			detachAll(quad.northwest);
+			detachAll(quad.northeast);
+			detachAll(quad.southwest);
+			detachAll(quad.southeast);
+		}
+	}
+
+}